@@ -0,0 +1,210 @@
+package Core;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * A prepared discrete distribution that draws in constant time with
+ * Vose's alias method. Building the tables costs O(n) once; each draw then
+ * picks a column uniformly and either keeps it or takes its alias, using
+ * a single random number and no allocation.
+ * <p>
+ * Frequency tables are kept in integer form, so a sampler built from
+ * frequencies draws each index with exactly the requested proportion.
+ */
+public class AliasSampler implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int n;
+    private final int[] alias;
+    /* Probability of keeping each column, for samplers built from doubles. */
+    private final double[] keep;
+    /* Threshold out of total of keeping each column, for frequency samplers. */
+    private final long[] keepCount;
+    private final long total;
+
+    /**
+     * Prepares a sampler that returns {@code i} with probability
+     * {@code probabilities[i]}.
+     *
+     * @param probabilities the probability of occurrence of each integer
+     * @throws IllegalArgumentException if {@code probabilities} is {@code null} or empty
+     * @throws IllegalArgumentException if sum of array entries is not (very nearly) equal to 1.0
+     * @throws IllegalArgumentException unless {@code probabilities[i] >= 0.0} for each index i
+     */
+    public AliasSampler(double[] probabilities) {
+        if (probabilities == null || probabilities.length == 0) {
+            throw new IllegalArgumentException("argument array is null or empty");
+        }
+        double eps = 1E-14;
+        double sum = 0.0;
+        for (int i = 0; i < probabilities.length; i++) {
+            if (!(probabilities[i] >= 0.0)) {
+                throw new IllegalArgumentException("array entry " + i + " must be nonnegative: "
+                                                   + probabilities[i]);
+            }
+            sum += probabilities[i];
+        }
+        if (sum > 1.0 + eps || sum < 1.0 - eps) {
+            throw new IllegalArgumentException("sum of array entries does not approximately "
+                                               + "equal 1.0: " + sum);
+        }
+
+        n = probabilities.length;
+        alias = new int[n];
+        keep = new double[n];
+        keepCount = null;
+        total = 0;
+        double[] scaled = new double[n];
+        for (int i = 0; i < n; i++) {
+            scaled[i] = probabilities[i] * n / sum;
+        }
+
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int ns = 0;
+        int nl = 0;
+        for (int i = 0; i < n; i++) {
+            if (scaled[i] < 1.0) {
+                small[ns++] = i;
+            } else {
+                large[nl++] = i;
+            }
+        }
+        while (ns > 0 && nl > 0) {
+            int s = small[--ns];
+            int l = large[--nl];
+            keep[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[ns++] = l;
+            } else {
+                large[nl++] = l;
+            }
+        }
+        /* Whatever is left is 1.0 up to roundoff. */
+        while (nl > 0) {
+            int l = large[--nl];
+            keep[l] = 1.0;
+            alias[l] = l;
+        }
+        while (ns > 0) {
+            int s = small[--ns];
+            keep[s] = 1.0;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * Prepares a sampler that returns {@code i} with probability
+     * proportional to {@code frequencies[i]}.
+     *
+     * @param frequencies the frequency of occurrence of each integer
+     * @throws IllegalArgumentException if frequencies is null
+     * @throws IllegalArgumentException if all array entries are 0
+     * @throws IllegalArgumentException if frequencies[i] is negative for any index i
+     * @throws IllegalArgumentException if sum of frequencies exceeds Integer.MAX_VALUE (2^31 - 1)
+     */
+    public AliasSampler(int[] frequencies) {
+        if (frequencies == null) {
+            throw new IllegalArgumentException("argument array is null");
+        }
+        long sum = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] < 0) {
+                throw new IllegalArgumentException("array entry " + i + " must be nonnegative: "
+                                                   + frequencies[i]);
+            }
+            sum += frequencies[i];
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("at least one array entry must be positive");
+        }
+        if (sum >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("sum of frequencies overflows an int");
+        }
+
+        /* Column i holds frequencies[i] * n of the n * sum outcomes, so a
+           full column holds exactly sum of them. */
+        n = frequencies.length;
+        alias = new int[n];
+        keep = null;
+        keepCount = new long[n];
+        total = sum;
+        long[] scaled = new long[n];
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (long) frequencies[i] * n;
+        }
+
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int ns = 0;
+        int nl = 0;
+        for (int i = 0; i < n; i++) {
+            if (scaled[i] < sum) {
+                small[ns++] = i;
+            } else {
+                large[nl++] = i;
+            }
+        }
+        while (ns > 0) {
+            int s = small[--ns];
+            int l = large[--nl];
+            keepCount[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] -= sum - scaled[s];
+            if (scaled[l] < sum) {
+                small[ns++] = l;
+            } else {
+                large[nl++] = l;
+            }
+        }
+        while (nl > 0) {
+            int l = large[--nl];
+            keepCount[l] = sum;
+            alias[l] = l;
+        }
+    }
+
+    /**
+     * Returns the number of outcomes.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns a random integer from the distribution.
+     *
+     * @param random a random number generator.
+     */
+    public int sample(Random random) {
+        if (keep != null) {
+            double u = random.nextDouble() * n;
+            int column = (int) u;
+            if (column >= n) { // roundoff when nextDouble() is nearly 1.0
+                column = n - 1;
+            }
+            return u - column < keep[column] ? column : alias[column];
+        }
+        long outcomes = n * total;
+        long r = outcomes < Integer.MAX_VALUE
+                ? random.nextInt((int) outcomes)
+                : RandomUtils.uniform(random, outcomes);
+        int column = (int) (r / total);
+        return r % total < keepCount[column] ? column : alias[column];
+    }
+
+    /**
+     * Fills an array with independent draws from the distribution.
+     *
+     * @param random a random number generator.
+     * @param out    the array to fill.
+     */
+    public void sample(Random random, int[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = sample(random);
+        }
+    }
+}
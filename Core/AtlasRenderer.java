@@ -0,0 +1,182 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Draws levels by copying pre-rendered tiles instead of drawing every
+ * tile with shapes and glyphs each frame. Each distinct tile is rendered
+ * once, the way {@link Tile#draw} renders it, into a strip of sprites,
+ * the atlas. A frame is then composed in one reusable image by copying
+ * sprite pixels, and only the tiles that changed since the last frame
+ * are copied, so a frame in which the Player moves one step copies two
+ * tiles. The caller puts the whole frame on screen with one drawImage.
+ */
+public class AtlasRenderer {
+    /* Atlas slots allocated up front: the tiles of TileIds, plus room for
+       a few tiles outside that set. */
+    private static final int INITIAL_SPRITES = 8;
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final Font font;
+    private final BufferedImage frame;
+    private final int[] framePixels;
+    private BufferedImage atlas;
+    private int[] atlasPixels;
+    /* The tile rendered into each atlas slot. A game uses a handful of
+       tiles, so a scan finds a slot faster than a hash lookup. */
+    private Tile[] spriteTiles;
+    private int sprites;
+    /* The atlas slot of each tile id, or -1. Every "l" brings deserialized
+       copies of the game's tiles, so they share a slot by id rather than
+       each copy taking one. */
+    private final int[] idSlots = new int[TileIds.COUNT];
+    /* The tile drawn at each position of the frame, or null if none is. */
+    private final Tile[][] drawn;
+
+    /**
+     * Creates a renderer for levels of a fixed size.
+     *
+     * @param width    the width of a level in tiles.
+     * @param height   the height of a level in tiles.
+     * @param tileSize the side of a tile in pixels.
+     * @throws IllegalArgumentException if a size is not positive.
+     */
+    public AtlasRenderer(int width, int height, int tileSize) {
+        if (width <= 0 || height <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("sizes must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.font = new Font("Monaco", Font.BOLD, tileSize - 2);
+        frame = new BufferedImage(width * tileSize, height * tileSize, BufferedImage.TYPE_INT_RGB);
+        framePixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        drawn = new Tile[width][height];
+        Arrays.fill(idSlots, -1);
+        growAtlas(INITIAL_SPRITES);
+    }
+
+    /**
+     * Brings the frame up to date with a level and returns it. The image
+     * is reused by later calls. Row 0 of the image is the top row of the
+     * level, which is y = height - 1.
+     *
+     * @param world a level of the renderer's size.
+     * @throws IllegalArgumentException if the level has another size.
+     */
+    public BufferedImage renderFrame(Tile[][] world) {
+        if (world.length != width || world[0].length != height) {
+            throw new IllegalArgumentException("level is not " + width + "x" + height);
+        }
+        for (int x = 0; x < width; x++) {
+            Tile[] column = world[x];
+            Tile[] drawnColumn = drawn[x];
+            for (int y = 0; y < height; y++) {
+                Tile t = column[y];
+                if (t != drawnColumn[y]) {
+                    blit(sprite(t), x, height - 1 - y);
+                    drawnColumn[y] = t;
+                }
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Forgets what the frame shows, so the next frame is drawn in full.
+     */
+    public void invalidate() {
+        for (Tile[] column : drawn) {
+            Arrays.fill(column, null);
+        }
+    }
+
+    /**
+     * Returns the number of distinct tiles rendered into the atlas so far.
+     */
+    public int sprites() {
+        return sprites;
+    }
+
+    /* Returns the atlas slot of a tile, rendering it on first use. Tiles
+       of the game's set are found by id, any others by identity. */
+    private int sprite(Tile t) {
+        int id = TileIds.of(t);
+        if (id != TileIds.UNKNOWN) {
+            if (idSlots[id] < 0) {
+                idSlots[id] = addSprite(t);
+            }
+            return idSlots[id];
+        }
+        for (int slot = 0; slot < sprites; slot++) {
+            if (spriteTiles[slot] == t) {
+                return slot;
+            }
+        }
+        return addSprite(t);
+    }
+
+    /* Renders a tile into the next free atlas slot. */
+    private int addSprite(Tile t) {
+        if (sprites == spriteTiles.length) {
+            growAtlas(2 * sprites);
+        }
+        Graphics2D g = atlas.createGraphics();
+        try {
+            render(g, t, sprites * tileSize);
+        } finally {
+            g.dispose();
+        }
+        spriteTiles[sprites] = t;
+        return sprites++;
+    }
+
+    /* Draws a tile as Tile.draw does: a square of the background color
+       with the character centred on it. */
+    private void render(Graphics2D g, Tile t, int left) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(t.backgroundColor());
+        g.fillRect(left, 0, tileSize, tileSize);
+        g.setFont(font);
+        g.setColor(t.textColor());
+        FontMetrics metrics = g.getFontMetrics();
+        String s = String.valueOf(t.character());
+        g.drawString(s, (float) (left + tileSize / 2.0 - metrics.stringWidth(s) / 2.0),
+                     (float) (tileSize / 2.0 + metrics.getDescent()));
+    }
+
+    private void growAtlas(int slots) {
+        BufferedImage grown = new BufferedImage(slots * tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+        if (atlas != null) {
+            Graphics2D g = grown.createGraphics();
+            g.drawImage(atlas, 0, 0, null);
+            g.dispose();
+        }
+        atlas = grown;
+        spriteTiles = spriteTiles == null ? new Tile[slots] : Arrays.copyOf(spriteTiles, slots);
+        atlasPixels = ((DataBufferInt) atlas.getRaster().getDataBuffer()).getData();
+    }
+
+    /* Copies a sprite into the frame, row by row. */
+    private void blit(int slot, int column, int row) {
+        int atlasWidth = atlas.getWidth();
+        int frameWidth = width * tileSize;
+        int from = slot * tileSize;
+        int to = row * tileSize * frameWidth + column * tileSize;
+        for (int i = 0; i < tileSize; i++) {
+            System.arraycopy(atlasPixels, from, framePixels, to, tileSize);
+            from += atlasWidth;
+            to += frameWidth;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Random;
+
+/**
+ * Binary space partitioning generator. The map is split recursively into
+ * rectangular leaves, each leaf gets one room, and the rooms of sibling
+ * subtrees are joined by L-shaped corridors, so every room is reachable.
+ * Unlike the room-and-hallway generator it never rejects a placement, so
+ * its cost is linear in the number of floor tiles.
+ */
+public class BspGenerator implements WorldGenerator {
+    /* Smallest leaf that can be split off; leaves hold a room plus margin. */
+    private static final int MIN_LEAF = 8;
+    private static final int MIN_ROOM = 3;
+    private static final int MAX_DEPTH = 6;
+
+    @Override
+    public void generate(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics) {
+        long t = metrics != null ? System.nanoTime() : 0L;
+        Run run = new Run(world, rand, index);
+        run.split(1, 1, world.length - 2, world[0].length - 2, MAX_DEPTH);
+        if (metrics != null) {
+            metrics.setStructures(run.rooms);
+            t = GenMetrics.lap(t, metrics::addPlacementNanos);
+        }
+        Game.placeWalls(world, index);
+        if (metrics != null) {
+            GenMetrics.lap(t, metrics::addWallNanos);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "bsp";
+    }
+
+    /* The state of one generation, so that a generator can be shared. */
+    private static final class Run {
+        private final Tile[][] world;
+        private final Random rand;
+        private final LevelIndex index;
+        private int rooms;
+
+        Run(Tile[][] world, Random rand, LevelIndex index) {
+            this.world = world;
+            this.rand = rand;
+            this.index = index;
+        }
+
+        /**
+         * Partitions the region [x0, x1] x [y0, y1] and carves its rooms.
+         *
+         * @return the coordinates of a point inside one of the region's rooms,
+         * packed as {@code x << 16 | y}.
+         */
+        int split(int x0, int y0, int x1, int y1, int depth) {
+            int w = x1 - x0 + 1;
+            int h = y1 - y0 + 1;
+            boolean splitX = w >= 2 * MIN_LEAF;
+            boolean splitY = h >= 2 * MIN_LEAF;
+            if (depth == 0 || (!splitX && !splitY)) {
+                return carveRoom(x0, y0, x1, y1);
+            }
+            /* Prefer cutting across the longer side. */
+            if (splitX && splitY) {
+                splitX = w > h || (w == h && RandomUtils.bernoulli(rand));
+            }
+            int a;
+            int b;
+            if (splitX) {
+                int cut = RandomUtils.uniform(rand, x0 + MIN_LEAF, x1 - MIN_LEAF + 2);
+                a = split(x0, y0, cut - 1, y1, depth - 1);
+                b = split(cut, y0, x1, y1, depth - 1);
+            } else {
+                int cut = RandomUtils.uniform(rand, y0 + MIN_LEAF, y1 - MIN_LEAF + 2);
+                a = split(x0, y0, x1, cut - 1, depth - 1);
+                b = split(x0, cut, x1, y1, depth - 1);
+            }
+            carveCorridor(world, index, a >>> 16, a & 0xffff, b >>> 16, b & 0xffff);
+            return RandomUtils.bernoulli(rand) ? a : b;
+        }
+
+        /* Carves a random room inside a leaf, leaving a one tile margin so
+           rooms in neighbouring leaves stay separated by walls. */
+        private int carveRoom(int x0, int y0, int x1, int y1) {
+            int rw = RandomUtils.uniform(rand, MIN_ROOM, x1 - x0);
+            int rh = RandomUtils.uniform(rand, MIN_ROOM, y1 - y0);
+            int rx = RandomUtils.uniform(rand, x0 + 1, x1 - rw + 1);
+            int ry = RandomUtils.uniform(rand, y0 + 1, y1 - rh + 1);
+            for (int x = rx; x < rx + rw; x++) {
+                for (int y = ry; y < ry + rh; y++) {
+                    LevelIndex.set(world, x, y, TileSet.FLOOR, index);
+                }
+            }
+            if (index != null) {
+                index.structures().add(StructureIndex.ROOM, rx, ry, rx + rw, ry + rh);
+            }
+            rooms++;
+            return (rx + rw / 2) << 16 | (ry + rh / 2);
+        }
+    }
+
+    /* Joins two points with a horizontal then a vertical corridor. */
+    private static void carveCorridor(Tile[][] world, LevelIndex index,
+                                      int ax, int ay, int bx, int by) {
+        for (int x = Math.min(ax, bx); x <= Math.max(ax, bx); x++) {
+            LevelIndex.set(world, x, ay, TileSet.FLOOR, index);
+        }
+        for (int y = Math.min(ay, by); y <= Math.max(ay, by); y++) {
+            LevelIndex.set(world, bx, y, TileSet.FLOOR, index);
+        }
+        if (index != null) {
+            StructureIndex structures = index.structures();
+            structures.add(StructureIndex.HALLWAY, Math.min(ax, bx), ay, Math.max(ax, bx) + 1, ay + 1);
+            structures.add(StructureIndex.HALLWAY, bx, Math.min(ay, by), bx + 1, Math.max(ay, by) + 1);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Random;
+
+/**
+ * Cellular automaton cave generator. The map is kept as one {@code long}
+ * bitboard per column, with bit y set where the column is rock, so a
+ * whole column of cells is updated with a handful of bitwise operations.
+ * Each step counts the eight neighbours of every cell in parallel with a
+ * bit-sliced adder and applies the 4-5 rule: rock stays rock with at
+ * least four rock neighbours, and open ground turns to rock with at least
+ * five. Only the largest open region is kept, so the cave is connected.
+ * <p>
+ * Worlds may be at most 62 tiles tall, so a column fits in a long.
+ */
+public class CaveGenerator implements WorldGenerator {
+    private static final double FILL = 0.45;
+    private static final int STEPS = 5;
+    /* Caves smaller than this get a room carved in the middle instead. */
+    private static final int MIN_AREA = 40;
+
+    @Override
+    public void generate(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics) {
+        int width = world.length;
+        int height = world[0].length;
+        if (height > 62) {
+            throw new IllegalArgumentException("world too tall for bitboards: " + height);
+        }
+        long t = metrics != null ? System.nanoTime() : 0L;
+        long full = (1L << height) - 1;
+        long interior = full & ~1L & ~(1L << (height - 1));
+
+        long[] rock = new long[width];
+        long[] next = new long[width];
+        rock[0] = full;
+        rock[width - 1] = full;
+        for (int x = 1; x < width - 1; x++) {
+            long column = full & ~interior;
+            for (int y = 1; y < height - 1; y++) {
+                if (RandomUtils.bernoulli(rand, FILL)) {
+                    column |= 1L << y;
+                }
+            }
+            rock[x] = column;
+        }
+        next[0] = full;
+        next[width - 1] = full;
+        for (int step = 0; step < STEPS; step++) {
+            for (int x = 1; x < width - 1; x++) {
+                next[x] = (step(rock[x - 1], rock[x], rock[x + 1]) & interior)
+                        | (full & ~interior);
+            }
+            long[] staged = rock;
+            rock = next;
+            next = staged;
+        }
+
+        int regions = stampLargestCave(world, index, rock);
+        if (metrics != null) {
+            metrics.setStructures(regions);
+            t = GenMetrics.lap(t, metrics::addPlacementNanos);
+        }
+        Game.placeWalls(world, index);
+        if (metrics != null) {
+            GenMetrics.lap(t, metrics::addWallNanos);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "caves";
+    }
+
+    /**
+     * Applies one automaton step to a column.
+     *
+     * @param left   the rock bitboard of the column to the left.
+     * @param centre the rock bitboard of the column.
+     * @param right  the rock bitboard of the column to the right.
+     * @return the next rock bitboard of the column.
+     */
+    static long step(long left, long centre, long right) {
+        /* The eight neighbour boards, aligned with the centre column. */
+        long n0 = left << 1;
+        long n1 = left;
+        long n2 = left >>> 1;
+        long n3 = centre << 1;
+        long n4 = centre >>> 1;
+        long n5 = right << 1;
+        long n6 = right;
+        long n7 = right >>> 1;
+
+        /* Bit-sliced sum of the eight boards: count = b0 + 2 b1 + 4 b2 + 8 b3. */
+        long x1 = n0 ^ n1;
+        long s1 = x1 ^ n2;
+        long c1 = (n0 & n1) | (n2 & x1);
+        long x2 = n3 ^ n4;
+        long s2 = x2 ^ n5;
+        long c2 = (n3 & n4) | (n5 & x2);
+        long s3 = n6 ^ n7;
+        long c3 = n6 & n7;
+        long x4 = s1 ^ s2;
+        long b0 = x4 ^ s3;
+        long c4 = (s1 & s2) | (s3 & x4);
+        long x5 = c1 ^ c2;
+        long t = x5 ^ c3;
+        long c5 = (c1 & c2) | (c3 & x5);
+        long b1 = t ^ c4;
+        long c6 = t & c4;
+        long b2 = c5 ^ c6;
+        long b3 = c5 & c6;
+
+        long atLeast4 = b2 | b3;
+        long atLeast5 = b3 | (b2 & (b1 | b0));
+        return (centre & atLeast4) | atLeast5;
+    }
+
+    /* Writes the open cells of the largest connected region as floor and
+       returns the number of open regions that were found. */
+    private static int stampLargestCave(Tile[][] world, LevelIndex index, long[] rock) {
+        int width = world.length;
+        int height = world[0].length;
+        Connectivity caves = new Connectivity(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if ((rock[x] & (1L << y)) == 0) {
+                    caves.open(x, y);
+                }
+            }
+        }
+        int bestX = -1;
+        int bestY = -1;
+        int bestSize = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int size = caves.regionSize(x, y);
+                if (size > bestSize) {
+                    bestSize = size;
+                    bestX = x;
+                    bestY = y;
+                }
+            }
+        }
+        if (bestSize < MIN_AREA) {
+            for (int x = width / 2 - 3; x < width / 2 + 3; x++) {
+                for (int y = height / 2 - 3; y < height / 2 + 3; y++) {
+                    LevelIndex.set(world, x, y, TileSet.FLOOR, index);
+                }
+            }
+            return caves.regionCount();
+        }
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (caves.connected(x, y, bestX, bestY)) {
+                    LevelIndex.set(world, x, y, TileSet.FLOOR, index);
+                }
+            }
+        }
+        return caves.regionCount();
+    }
+}
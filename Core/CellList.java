@@ -0,0 +1,85 @@
+package Core;
+
+import java.util.Arrays;
+
+/**
+ * A set of grid cells stored as a compact array of cell numbers, with a
+ * reverse lookup so that adding, removing and drawing a uniformly random
+ * member all take O(1). Removal swaps the last member into the hole, so
+ * the order of members is arbitrary.
+ */
+public class CellList {
+    private final int[] cells;
+    private final int[] slot;
+    private int size;
+
+    /**
+     * Creates an empty list for cell numbers in [0, capacity).
+     *
+     * @param capacity the number of cells in the grid.
+     */
+    public CellList(int capacity) {
+        cells = new int[capacity];
+        slot = new int[capacity];
+        Arrays.fill(slot, -1);
+    }
+
+    /**
+     * Adds a cell if it is not already a member.
+     *
+     * @param cell a cell number.
+     */
+    public void add(int cell) {
+        if (slot[cell] >= 0) {
+            return;
+        }
+        slot[cell] = size;
+        cells[size] = cell;
+        size++;
+    }
+
+    /**
+     * Removes a cell if it is a member.
+     *
+     * @param cell a cell number.
+     */
+    public void remove(int cell) {
+        int i = slot[cell];
+        if (i < 0) {
+            return;
+        }
+        size--;
+        int last = cells[size];
+        cells[i] = last;
+        slot[last] = i;
+        slot[cell] = -1;
+    }
+
+    /**
+     * Checks if a cell is a member.
+     *
+     * @param cell a cell number.
+     */
+    public boolean contains(int cell) {
+        return slot[cell] >= 0;
+    }
+
+    /**
+     * Returns the member at an index in [0, size()).
+     *
+     * @param i an index.
+     */
+    public int get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index " + i + " out of " + size);
+        }
+        return cells[i];
+    }
+
+    /**
+     * Returns the number of members.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,162 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+/**
+ * A union-find index over the cells of a world that tracks which walkable
+ * tiles are connected to each other. Cells are opened one at a time as
+ * structures are stamped onto the map, and each opened cell is joined with
+ * its open orthogonal neighbours, so connectivity queries cost O(&alpha;(n))
+ * without any pass over the grid.
+ */
+public class Connectivity {
+    private final int width;
+    private final int height;
+    private final int[] parent;
+    private final int[] size;
+    private final boolean[] open;
+    private int regions;
+
+    /**
+     * Creates an index with every cell closed.
+     *
+     * @param width  the world width.
+     * @param height the world height.
+     */
+    public Connectivity(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.parent = new int[width * height];
+        this.size = new int[width * height];
+        this.open = new boolean[width * height];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    /**
+     * Builds an index from an existing world. Every tile other than a wall
+     * or an empty tile is treated as walkable.
+     *
+     * @param world the game world, a 2-d array.
+     */
+    public static Connectivity of(Tile[][] world) {
+        Connectivity regions = new Connectivity(world.length, world[0].length);
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[0].length; y++) {
+                if (world[x][y] != TileSet.WALL && world[x][y] != TileSet.NOTHING) {
+                    regions.open(x, y);
+                }
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Marks a cell as walkable and joins it with its open neighbours.
+     *
+     * @param x the x-coordinate of the cell.
+     * @param y the y-coordinate of the cell.
+     */
+    public void open(int x, int y) {
+        int p = x * height + y;
+        if (open[p]) {
+            return;
+        }
+        open[p] = true;
+        regions++;
+        if (x > 0 && open[p - height]) {
+            union(p, p - height);
+        }
+        if (x < width - 1 && open[p + height]) {
+            union(p, p + height);
+        }
+        if (y > 0 && open[p - 1]) {
+            union(p, p - 1);
+        }
+        if (y < height - 1 && open[p + 1]) {
+            union(p, p + 1);
+        }
+    }
+
+    /**
+     * Checks if a cell has been opened.
+     *
+     * @param x the x-coordinate of the cell.
+     * @param y the y-coordinate of the cell.
+     */
+    public boolean isOpen(int x, int y) {
+        return open[x * height + y];
+    }
+
+    /**
+     * Checks if two open cells lie in the same connected region.
+     *
+     * @param ax the x-coordinate of the first cell.
+     * @param ay the y-coordinate of the first cell.
+     * @param bx the x-coordinate of the second cell.
+     * @param by the y-coordinate of the second cell.
+     */
+    public boolean connected(int ax, int ay, int bx, int by) {
+        int a = ax * height + ay;
+        int b = bx * height + by;
+        return open[a] && open[b] && find(a) == find(b);
+    }
+
+    /**
+     * Checks if two positions lie in the same connected region.
+     *
+     * @param a two-element integer array with the first coordinates.
+     * @param b two-element integer array with the second coordinates.
+     */
+    public boolean connected(int[] a, int[] b) {
+        return connected(a[0], a[1], b[0], b[1]);
+    }
+
+    /**
+     * Returns the number of cells in the region containing a cell, or 0 if
+     * the cell is not open.
+     *
+     * @param x the x-coordinate of the cell.
+     * @param y the y-coordinate of the cell.
+     */
+    public int regionSize(int x, int y) {
+        int p = x * height + y;
+        return open[p] ? size[find(p)] : 0;
+    }
+
+    /**
+     * Returns the number of disjoint walkable regions.
+     */
+    public int regionCount() {
+        return regions;
+    }
+
+    /* Follows parent links to the root, halving the path as it goes. */
+    private int find(int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    /* Links the smaller tree under the larger one. */
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        if (size[rootP] < size[rootQ]) {
+            parent[rootP] = rootQ;
+            size[rootQ] += size[rootP];
+        } else {
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+        }
+        regions--;
+    }
+}
@@ -0,0 +1,107 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reference decoder for the format written by {@link EventStream}. It
+ * replays a recorded session and prints the last frame as text along
+ * with counts of what the stream contained, which makes it a starting
+ * point for external renderers.
+ * <p>
+ * Usage: {@code java Core.EventReplay [file]}, reading standard input
+ * when no file is given.
+ */
+public class EventReplay {
+    private Tile[][] level;
+    private int playerX = -1;
+    private int playerY = -1;
+    private long frames;
+    private long keyframes;
+    private long tiles;
+    private long swaps;
+    private long lastTurn = -1;
+    private long skipped;
+
+    public static void main(String[] args) throws IOException {
+        InputStream in = args.length > 0 ? new FileInputStream(args[0]) : System.in;
+        EventReplay replay = new EventReplay();
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            replay.read(data);
+        }
+        if (replay.level != null) {
+            System.out.println(Tile.toString(replay.level));
+        }
+        System.out.println("frames " + replay.frames + ", keyframes " + replay.keyframes
+                           + ", tile deltas " + replay.tiles + ", level swaps " + replay.swaps
+                           + ", turns dropped " + replay.skipped + ", player at ("
+                           + replay.playerX + ", " + replay.playerY + ")");
+    }
+
+    /**
+     * Applies every frame of a stream.
+     *
+     * @param in the stream, positioned at a frame boundary.
+     * @throws IOException if the stream is malformed.
+     */
+    public void read(DataInputStream in) throws IOException {
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            apply(new DataInputStream(new ByteArrayInputStream(payload)), length);
+        }
+    }
+
+    private void apply(DataInputStream frame, int length) throws IOException {
+        long turn = frame.readLong();
+        if (lastTurn >= 0 && turn != lastTurn + 1) {
+            skipped += turn - lastTurn - 1;
+        }
+        lastTurn = turn;
+        frames++;
+        int read = 8;
+        while (read < length) {
+            byte type = frame.readByte();
+            read++;
+            if (type == EventStream.KEYFRAME) {
+                int width = frame.readShort();
+                int height = frame.readShort();
+                level = new Tile[width][height];
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        level[x][y] = TileIds.tile(frame.readByte());
+                    }
+                }
+                keyframes++;
+                read += 4 + width * height;
+            } else if (type == EventStream.TILE) {
+                int x = frame.readShort();
+                int y = frame.readShort();
+                level[x][y] = TileIds.tile(frame.readByte());
+                tiles++;
+                read += 5;
+            } else if (type == EventStream.PLAYER) {
+                playerX = frame.readShort();
+                playerY = frame.readShort();
+                read += 4;
+            } else if (type == EventStream.SWAP) {
+                swaps++;
+            } else {
+                throw new IOException("unknown event type " + type + " in turn " + turn);
+            }
+        }
+    }
+}
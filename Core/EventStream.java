@@ -0,0 +1,302 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A compact binary record of a game session for spectators and external
+ * renderers. The game publishes one frame per turn; a background thread
+ * writes frames to any NIO channel, such as a file, a pipe or a socket.
+ * <p>
+ * Frames pass through a bounded ring buffer. When a slow consumer lets
+ * the ring fill up, new frames are dropped instead of blocking the game,
+ * and the next frame that fits is a keyframe, so the consumer resyncs.
+ * The writer drains every frame that is ready in one write, which batches
+ * frames when the game runs ahead of the consumer.
+ * <p>
+ * All numbers are big-endian. A frame is an int payload length followed
+ * by the payload: a long turn number, then a sequence of events, each a
+ * type byte followed by its fields:
+ * <ul>
+ * <li>{@link #KEYFRAME}: short width, short height, then width * height
+ * tile ids ({@link TileIds}) in column-major order.</li>
+ * <li>{@link #TILE}: short x, short y, byte tile id.</li>
+ * <li>{@link #PLAYER}: short x, short y.</li>
+ * <li>{@link #SWAP}: no fields; the Player climbed to the other level,
+ * whose keyframe follows.</li>
+ * </ul>
+ */
+public class EventStream implements AutoCloseable {
+    public static final byte KEYFRAME = 1;
+    public static final byte TILE = 2;
+    public static final byte PLAYER = 3;
+    public static final byte SWAP = 4;
+
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /* Frames are assembled here before being copied into the ring. */
+    private ByteBuffer frame = ByteBuffer.allocate(1 << 14);
+    private final ByteBuffer ring;
+    private final int mask;
+    /* Bytes published by the game and bytes written by the writer. */
+    private volatile long head;
+    private volatile long tail;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private final WritableByteChannel channel;
+    private final Thread writer;
+
+    private long turn;
+    private long dropped;
+    private boolean needKeyframe = true;
+    private Tile[][] lastLevel;
+    private PersistentGrid lastGrid;
+    private PersistentGrid.Snapshot lastTiles;
+    private int lastX = -1;
+    private int lastY = -1;
+    private int[] cells;
+
+    /**
+     * Creates a stream that writes to a channel.
+     *
+     * @param channel  the channel to write to; closed with the stream.
+     * @param capacity the ring buffer size in bytes, rounded up to a power
+     *                 of two.
+     */
+    public EventStream(WritableByteChannel channel, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        this.ring = ByteBuffer.allocateDirect(size);
+        this.mask = size - 1;
+        this.channel = channel;
+        this.writer = new Thread(this::drain, "event-stream-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens a stream to a target: "-" for standard output,
+     * "unix:PATH" for a local socket, "tcp:HOST:PORT" for a TCP socket,
+     * and anything else is a file path. Closing a stream to standard
+     * output flushes it but leaves it open.
+     *
+     * @param target where to send the stream.
+     * @throws IOException if the target cannot be opened.
+     */
+    public static EventStream open(String target) throws IOException {
+        WritableByteChannel channel;
+        if (target.equals("-")) {
+            channel = Channels.newChannel(new FilterOutputStream(System.out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            });
+        } else if (target.startsWith("unix:")) {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(target.substring(5)));
+        } else if (target.startsWith("tcp:")) {
+            int colon = target.lastIndexOf(':');
+            channel = SocketChannel.open(new InetSocketAddress(
+                    target.substring(4, colon), Integer.parseInt(target.substring(colon + 1))));
+        } else {
+            channel = FileChannel.open(Path.of(target), StandardOpenOption.CREATE,
+                                       StandardOpenOption.TRUNCATE_EXISTING,
+                                       StandardOpenOption.WRITE);
+        }
+        return new EventStream(channel, DEFAULT_CAPACITY);
+    }
+
+    /* ++++++++++++++++++++++++ GAME THREAD ++++++++++++++++++++++++++ */
+
+    /**
+     * Publishes the changes to a game since the last call as one frame.
+     * The first frame, and the first after a level change or a dropped
+     * frame, carries a keyframe of the current level instead of deltas.
+     * Never blocks.
+     *
+     * @param g the game being recorded.
+     */
+    public void publish(Game g) {
+        Tile[][] level = g.world();
+        if (level == null || closed) {
+            return;
+        }
+        PersistentGrid grid = g.grid(level);
+        frame.clear();
+        frame.putInt(0).putLong(turn++);
+        if (lastLevel != null && level != lastLevel && lastLevel == g.overworld()) {
+            put(SWAP);
+        }
+        if (needKeyframe || level != lastLevel || grid != lastGrid) {
+            putKeyframe(level);
+        } else {
+            if (cells == null) {
+                cells = new int[level.length * level[0].length];
+            }
+            int n = grid.diff(lastTiles, cells);
+            int height = level[0].length;
+            for (int i = 0; i < n; i++) {
+                int x = cells[i] / height;
+                int y = cells[i] % height;
+                ensure(6);
+                frame.put(TILE).putShort((short) x).putShort((short) y)
+                        .put((byte) TileIds.of(level[x][y]));
+            }
+        }
+        int[] pos = g.playerPos();
+        if (pos[0] != lastX || pos[1] != lastY) {
+            ensure(5);
+            frame.put(PLAYER).putShort((short) pos[0]).putShort((short) pos[1]);
+            lastX = pos[0];
+            lastY = pos[1];
+        }
+        lastLevel = level;
+        lastGrid = grid;
+        lastTiles = grid.snapshot();
+        frame.putInt(0, frame.position() - 4);
+        frame.flip();
+        enqueue();
+    }
+
+    /**
+     * Returns the number of frames dropped because the ring was full.
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the number of bytes written to the channel so far.
+     */
+    public long written() {
+        return tail;
+    }
+
+    /**
+     * Writes the frames still in the ring and closes the channel.
+     *
+     * @throws IOException if a write failed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void putKeyframe(Tile[][] level) {
+        int width = level.length;
+        int height = level[0].length;
+        ensure(5 + width * height);
+        frame.put(KEYFRAME).putShort((short) width).putShort((short) height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                frame.put((byte) TileIds.of(level[x][y]));
+            }
+        }
+        lastX = -1; // repeat the position after every keyframe
+        needKeyframe = false;
+    }
+
+    private void put(byte event) {
+        ensure(1);
+        frame.put(event);
+    }
+
+    /* Grows the frame buffer to fit n more bytes. */
+    private void ensure(int n) {
+        if (frame.remaining() < n) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(frame.capacity() * 2,
+                                                             frame.position() + n));
+            frame.flip();
+            bigger.put(frame);
+            frame = bigger;
+        }
+    }
+
+    /* Copies the assembled frame into the ring, or drops it if it does
+       not fit. Only the game thread moves head. */
+    private void enqueue() {
+        int size = frame.remaining();
+        long h = head;
+        if (size > ring.capacity() - (h - tail)) {
+            dropped++;
+            needKeyframe = true;
+            return;
+        }
+        int at = (int) (h & mask);
+        int first = Math.min(size, ring.capacity() - at);
+        ByteBuffer out = ring.duplicate();
+        out.position(at);
+        frame.limit(first);
+        out.put(frame);
+        if (first < size) {
+            frame.limit(size);
+            out.position(0);
+            out.put(frame);
+        }
+        head = h + size;
+        LockSupport.unpark(writer);
+    }
+
+    /* ++++++++++++++++++++++++ WRITER THREAD ++++++++++++++++++++++++ */
+
+    /* Writes everything between tail and head, in at most two slices for
+       the wrap-around. Only the writer thread moves tail. */
+    private void drain() {
+        ByteBuffer in = ring.duplicate();
+        try {
+            while (true) {
+                long h = head;
+                long t = tail;
+                if (h == t) {
+                    if (closed) {
+                        return;
+                    }
+                    LockSupport.parkNanos(1_000_000L);
+                    continue;
+                }
+                int at = (int) (t & mask);
+                int len = (int) Math.min(h - t, ring.capacity() - at);
+                in.limit(at + len).position(at);
+                while (in.hasRemaining()) {
+                    channel.write(in);
+                }
+                tail = t + len;
+            }
+        } catch (IOException e) {
+            failure = e;
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Core;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A pseudo-random bijection on [0, n) that takes O(1) memory, for visiting
+ * every cell of a large grid in random order without materializing a
+ * permutation. Indices are encrypted with a balanced Feistel network over
+ * the smallest even number of bits that covers n, and values that land
+ * outside [0, n) are encrypted again until they fall inside (cycle
+ * walking). The domain is less than 4n, so that takes under four rounds
+ * of the network on average.
+ * <p>
+ * The ordering is fixed by the key, so the same key always gives the
+ * same permutation. It is well mixed but not cryptographically uniform
+ * over all n! orderings; use {@link Shuffles} where that matters.
+ */
+public class FeistelPermutation {
+    private static final int ROUNDS = 6;
+
+    private final long n;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] keys = new long[ROUNDS];
+
+    /**
+     * Creates a permutation of [0, n).
+     *
+     * @param n   the number of elements.
+     * @param key the key that selects the ordering.
+     * @throws IllegalArgumentException if {@code n} is negative
+     */
+    public FeistelPermutation(long n, long key) {
+        if (n < 0) {
+            throw new IllegalArgumentException("argument is negative");
+        }
+        this.n = n;
+        int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(Math.max(n - 1, 1)));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        long z = key;
+        for (int r = 0; r < ROUNDS; r++) {
+            z += 0x9e3779b97f4a7c15L;
+            keys[r] = mix(z);
+        }
+    }
+
+    /**
+     * Returns the number of elements.
+     */
+    public long size() {
+        return n;
+    }
+
+    /**
+     * Returns the element at a position of the ordering.
+     *
+     * @param i a position in [0, n).
+     * @throws IndexOutOfBoundsException unless {@code 0 <= i < n}
+     */
+    public long get(long i) {
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("position " + i + " of " + n);
+        }
+        long x = i;
+        /* For n above 2^62 the network covers all 64 bits, and its
+           outputs with the top bit set are negative, so compare unsigned. */
+        do {
+            x = encrypt(x);
+        } while (Long.compareUnsigned(x, n) >= 0);
+        return x;
+    }
+
+    /**
+     * Returns an iterator over the whole ordering.
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < n;
+            }
+
+            @Override
+            public long nextLong() {
+                if (next >= n) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    private long encrypt(long x) {
+        long left = x >>> halfBits;
+        long right = x & halfMask;
+        for (int r = 0; r < ROUNDS; r++) {
+            long staged = right;
+            right = left ^ (mix(right ^ keys[r]) & halfMask);
+            left = staged;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /* SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
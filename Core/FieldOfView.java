@@ -0,0 +1,180 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Arrays;
+
+/**
+ * Computes the tiles visible from a point using recursive shadowcasting
+ * over a bitmask of opaque tiles. The opaque mask is cached for the last
+ * world it was built from and the visible set is a reusable bitset, so a
+ * recomputation after a single step allocates nothing.
+ * <p>
+ * Cells are indexed column-major as {@code x * height + y}, matching the
+ * layout of a {@code Tile[x][y]} world.
+ */
+public class FieldOfView {
+    /* Octant transforms for the shadowcaster, one column per octant. */
+    private static final int[][] OCTANTS = {
+        {1, 0, 0, -1, -1, 0, 0, 1},
+        {0, 1, -1, 0, 0, -1, 1, 0},
+        {0, 1, 1, 0, 0, -1, -1, 0},
+        {1, 0, 0, 1, -1, 0, 0, -1}
+    };
+
+    private final int width;
+    private final int height;
+    private final int radius;
+    private final long[] opaque;
+    private final long[] visible;
+    private Tile[][] maskedWorld;
+    private long[] explored;
+
+    /**
+     * Creates a field of view for worlds of the given dimensions.
+     *
+     * @param width  the world width.
+     * @param height the world height.
+     * @param radius the sight radius in tiles.
+     */
+    public FieldOfView(int width, int height, int radius) {
+        this.width = width;
+        this.height = height;
+        this.radius = radius;
+        this.opaque = new long[words(width, height)];
+        this.visible = new long[words(width, height)];
+    }
+
+    /**
+     * Returns the number of longs needed for a bitset over a world.
+     *
+     * @param width  the world width.
+     * @param height the world height.
+     */
+    public static int words(int width, int height) {
+        return (width * height + 63) >>> 6;
+    }
+
+    /**
+     * Recomputes the visible tiles from an origin and marks them as
+     * explored. The opaque mask is only rebuilt when the world changes.
+     *
+     * @param world    the game world, a 2-d array.
+     * @param x        the x-coordinate of the viewer.
+     * @param y        the y-coordinate of the viewer.
+     * @param explored the explored bitset of the world, updated in place.
+     */
+    public void compute(Tile[][] world, int x, int y, long[] explored) {
+        if (world != maskedWorld) {
+            buildMask(world);
+        }
+        this.explored = explored;
+        Arrays.fill(visible, 0L);
+        mark(x, y);
+        for (int oct = 0; oct < 8; oct++) {
+            castLight(x, y, 1, 1.0, 0.0, OCTANTS[0][oct], OCTANTS[1][oct],
+                      OCTANTS[2][oct], OCTANTS[3][oct]);
+        }
+    }
+
+    /**
+     * Checks if a tile was visible in the last computation.
+     *
+     * @param x the x-coordinate of the tile.
+     * @param y the y-coordinate of the tile.
+     */
+    public boolean isVisible(int x, int y) {
+        int p = x * height + y;
+        return (visible[p >>> 6] & (1L << p)) != 0;
+    }
+
+    /**
+     * Checks if a tile is set in an explored bitset.
+     *
+     * @param explored an explored bitset.
+     * @param x        the x-coordinate of the tile.
+     * @param y        the y-coordinate of the tile.
+     */
+    public boolean isExplored(long[] explored, int x, int y) {
+        int p = x * height + y;
+        return (explored[p >>> 6] & (1L << p)) != 0;
+    }
+
+    /* Rebuilds the opaque mask. Walls and empty tiles block sight. */
+    private void buildMask(Tile[][] world) {
+        Arrays.fill(opaque, 0L);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (world[x][y] == TileSet.WALL || world[x][y] == TileSet.NOTHING) {
+                    int p = x * height + y;
+                    opaque[p >>> 6] |= 1L << p;
+                }
+            }
+        }
+        maskedWorld = world;
+    }
+
+    /* Off-map tiles are treated as opaque. */
+    private boolean isOpaque(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return true;
+        }
+        int p = x * height + y;
+        return (opaque[p >>> 6] & (1L << p)) != 0;
+    }
+
+    private void mark(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        int p = x * height + y;
+        visible[p >>> 6] |= 1L << p;
+        explored[p >>> 6] |= 1L << p;
+    }
+
+    /* Scans one octant row by row, recursing past each opaque run. */
+    private void castLight(int cx, int cy, int row, double start, double end,
+                           int xx, int xy, int yx, int yy) {
+        if (start < end) {
+            return;
+        }
+        int radius2 = radius * radius;
+        double newStart = 0.0;
+        for (int j = row; j <= radius; j++) {
+            int dx = -j - 1;
+            int dy = -j;
+            boolean blocked = false;
+            while (dx <= 0) {
+                dx++;
+                int x = cx + dx * xx + dy * xy;
+                int y = cy + dx * yx + dy * yy;
+                double leftSlope = (dx - 0.5) / (dy + 0.5);
+                double rightSlope = (dx + 0.5) / (dy - 0.5);
+                if (start < rightSlope) {
+                    continue;
+                } else if (end > leftSlope) {
+                    break;
+                }
+                if (dx * dx + dy * dy < radius2) {
+                    mark(x, y);
+                }
+                if (blocked) {
+                    if (isOpaque(x, y)) {
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else if (isOpaque(x, y) && j < radius) {
+                    blocked = true;
+                    castLight(cx, cy, j + 1, start, leftSlope, xx, xy, yx, yy);
+                    newStart = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+}
@@ -1,14 +1,12 @@
 package Core;
 
-import TileEngine.TileRenderer;
 import TileEngine.Tile;
 import TileEngine.TileSet;
-import edu.princeton.cs.introcs.StdDraw;
 
-import java.awt.Color;
-import java.awt.Font;
 import java.util.Random;
 import java.io.Serializable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -16,16 +14,31 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.lang.System;
 
 public class Game implements Serializable {
-    TileRenderer ter = new TileRenderer();
+    /* The UID of the first saved games, so that ./game.ser files written
+       before fields were added still load. Added fields load as their
+       defaults. */
+    private static final long serialVersionUID = 909716259445567713L;
     /* Feel free to change the width and height. */
     public static final int WIDTH = 80;
     public static final int HEIGHT = 30;
+    public static final int SIGHT_RADIUS = 8;
+    /* Entries per room-hallway system in the arrays of drawSystem. */
+    static final int SYSTEM_FIELDS = 8;
+    /* Outcomes of checkSystem. */
+    static final int SYSTEM_ACCEPTED = 0;
+    static final int SYSTEM_ROOM_REJECTED = 1;
+    static final int SYSTEM_HALL_REJECTED = 2;
+    static final int SYSTEM_CONNECTION_REJECTED = 3;
+    /* The save store to use instead of ./game.ser, if -Dabyss.saves
+       names one, and the slot of this session in it. */
+    private static final String SAVES = System.getProperty("abyss.saves");
+    private static final long SLOT = Long.getLong("abyss.slot", 0L);
     private int[] playerPos = new int[]{-1, -1};
     private int[] ladderPos = new int[]{-1, -1};
     private int[] overladderPos = new int[]{-1, -1};
@@ -33,6 +46,26 @@ public class Game implements Serializable {
     private Tile[][] overworld;
     private int seed;
     private boolean climbing = true;
+    private transient LevelIndex worldIndex;
+    private transient LevelIndex overworldIndex;
+    private boolean fogOfWar = false;
+    private long[] worldExplored;
+    private long[] overworldExplored;
+    private transient FieldOfView view;
+    private transient Tile[][] fogFrame;
+    private transient boolean recordMetrics = false;
+    private transient GenMetrics worldMetrics;
+    private transient GenMetrics overworldMetrics;
+    private transient WorldGenerator worldGenerator;
+    private transient WorldGenerator overworldGenerator;
+    private transient ArrayDeque<Snapshot> history;
+    private transient EventStream events;
+    /* An overworld that is generated when first looked at, see
+       startGameLazily, and whether its ladder position is still due. */
+    private transient boolean overworldPending;
+    private transient boolean overladderPending;
+    private transient int pendingSeed;
+    private transient WorldGenerator pendingGenerator;
 
 
     /* ==================================================================== */
@@ -116,15 +149,31 @@ public class Game implements Serializable {
      * @param rand  a random number generator calibrated to a seed.
      */
     public static void initMap(Tile[][] world, Random rand) {
+        initMap(world, rand, null, null);
+    }
+
+    /**
+     * Places initial room and records it in the level index.
+     *
+     * @param world   the game world, a 2-d array.
+     * @param rand    a random number generator calibrated to a seed.
+     * @param index   the index of the world, or null.
+     * @param metrics a generation metrics collector, or null.
+     */
+    public static void initMap(Tile[][] world, Random rand, LevelIndex index,
+                               GenMetrics metrics) {
         boolean success = false;
         while (!success) {
+            if (metrics != null) {
+                metrics.countInitMapAttempt();
+            }
             int[] shape = genRandomRoom(rand, 15);
             int[] pos = new int[2];
             pos[0] = RandomUtils.uniform(rand, WIDTH / 2, WIDTH);
             pos[1] = RandomUtils.uniform(rand, HEIGHT / 2, HEIGHT);
 
             if (checkEmptyTiles(world, shape, pos, "room")) {
-                placerHelper(world, shape, pos);
+                placeStructure(world, StructureIndex.ROOM, shape, pos, index);
                 success = true;
             }
         }
@@ -139,25 +188,223 @@ public class Game implements Serializable {
      * @param rand  a random number generator calibrated to a seed.
      */
     public static void placeSystem(Tile[][] world, Random rand) {
+        placeSystem(world, rand, null, null);
+    }
+
+    /**
+     * Places a room-hallway system and records it in the level index.
+     * Rejected systems are counted by the reason they were rejected for.
+     * Allocates the array the system is drawn into; generation passes
+     * its own, see {@link #placeSystem(Tile[][], Random, LevelIndex,
+     * GenMetrics, int[])}.
+     *
+     * @param world   the game world, a 2-d array.
+     * @param rand    a random number generator calibrated to a seed.
+     * @param index   the index of the world, or null.
+     * @param metrics a generation metrics collector, or null.
+     * @return whether the system was placed.
+     */
+    public static boolean placeSystem(Tile[][] world, Random rand, LevelIndex index,
+                                      GenMetrics metrics) {
+        return placeSystem(world, rand, index, metrics, new int[SYSTEM_FIELDS]);
+    }
+
+    /**
+     * Places a room-hallway system, drawing it into a reusable array.
+     * <p>
+     * This is the hot loop of generation, so it allocates nothing. It
+     * draws from rand exactly what {@link #genRandomHall},
+     * {@link #genRandomRoom(Random)} and {@link #findHallwayPos} draw, and
+     * applies the same checks as {@link #checkEmptyTiles} and
+     * {@link #checkSystemConnection}.
+     *
+     * @param world   the game world, a 2-d array.
+     * @param rand    a random number generator calibrated to a seed.
+     * @param index   the index of the world, or null.
+     * @param metrics a generation metrics collector, or null.
+     * @param system  an array of at least {@link #SYSTEM_FIELDS} entries
+     *                to draw the system into.
+     * @return whether the system was placed.
+     */
+    static boolean placeSystem(Tile[][] world, Random rand, LevelIndex index,
+                               GenMetrics metrics, int[] system) {
+        drawSystem(rand, system, 0);
+        int verdict = checkSystem(world, system, 0);
+        countSystem(metrics, verdict);
+        if (verdict != SYSTEM_ACCEPTED) {
+            return false;
+        }
+        commitSystem(world, index, system, 0);
+        return true;
+    }
+
+    /**
+     * Draws a room-hallway system from rand and stores it at systems[at]
+     * to systems[at + SYSTEM_FIELDS - 1] as the room's x, y, width and
+     * height followed by the hallway's. Every placement draws through
+     * here, so serial and batched placement draw the same systems.
+     *
+     * @param rand    a random number generator calibrated to a seed.
+     * @param systems the array to store the system in.
+     * @param at      the index of the first of its entries.
+     */
+    static void drawSystem(Random rand, int[] systems, int at) {
         /* Initializes structure sizes */
-        int[] hallShape = genRandomHall(rand);
-        int[] roomShape = genRandomRoom(rand);
+        int hallW;
+        int hallH;
+        if (RandomUtils.uniform(rand) < 0.5) {
+            hallH = 1;
+            hallW = genRandomHallLength(rand);
+        } else {
+            hallW = 1;
+            hallH = genRandomHallLength(rand);
+        }
+        int roomW = RandomUtils.uniform(rand, 2, 10);
+        int roomH = RandomUtils.uniform(rand, 2, 10);
 
         /* Chooses structure positions */
-        int[] roomPos = new int[2];
-        roomPos[0] = RandomUtils.uniform(rand, 1, WIDTH);
-        roomPos[1] = RandomUtils.uniform(rand, 1, HEIGHT);
+        int roomX = RandomUtils.uniform(rand, 1, WIDTH);
+        int roomY = RandomUtils.uniform(rand, 1, HEIGHT);
+
+        /* Attaches the hallway to a random border of the room */
+        double k = RandomUtils.uniform(rand);
+        int hallX;
+        int hallY;
+        if (hallW == 1) {
+            hallX = RandomUtils.uniform(rand, roomX, roomX + roomW - 1);
+            hallY = k < 0.5 ? roomY + roomH - 1 : roomY - (hallH - 1); // top or bottom
+        } else {
+            hallX = k < 0.5 ? roomX - (hallW - 1) : roomX + roomW - 1; // left or right
+            hallY = RandomUtils.uniform(rand, roomY, roomY + roomH - 1);
+        }
+        systems[at] = roomX;
+        systems[at + 1] = roomY;
+        systems[at + 2] = roomW;
+        systems[at + 3] = roomH;
+        systems[at + 4] = hallX;
+        systems[at + 5] = hallY;
+        systems[at + 6] = hallW;
+        systems[at + 7] = hallH;
+    }
+
+    /**
+     * Checks whether a drawn room-hallway system can be placed. Only reads
+     * the world, and only the tiles of the room and the ring around it and
+     * the tiles around the far end of the hallway.
+     *
+     * @param world   the game world, a 2-d array.
+     * @param systems an array of systems stored by {@link #drawSystem}.
+     * @param at      the index of the system's first entry.
+     * @return {@link #SYSTEM_ACCEPTED}, or the reason the system is
+     * rejected for: {@link #SYSTEM_ROOM_REJECTED},
+     * {@link #SYSTEM_HALL_REJECTED} or {@link #SYSTEM_CONNECTION_REJECTED}.
+     */
+    static int checkSystem(Tile[][] world, int[] systems, int at) {
+        int hallX = systems[at + 4];
+        int hallY = systems[at + 5];
+        int hallW = systems[at + 6];
+        int hallH = systems[at + 7];
+        if (!fits(world, systems[at], systems[at + 1], systems[at + 2], systems[at + 3], true)) {
+            return SYSTEM_ROOM_REJECTED;
+        } else if (!fits(world, hallX, hallY, hallW, hallH, false)) {
+            return SYSTEM_HALL_REJECTED;
+            /* Ensures that the far end of the hallway meets existing structure */
+        } else if (!isBorderTile(world, hallX + hallW - 1, hallY + hallH - 1)) {
+            return SYSTEM_CONNECTION_REJECTED;
+        }
+        return SYSTEM_ACCEPTED;
+    }
+
+    /**
+     * Counts an attempt to place a system and its outcome.
+     *
+     * @param metrics a generation metrics collector, or null.
+     * @param verdict the result of {@link #checkSystem}.
+     */
+    static void countSystem(GenMetrics metrics, int verdict) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.countAttempt();
+        switch (verdict) {
+            case SYSTEM_ROOM_REJECTED:
+                metrics.countRoomRejected();
+                break;
+            case SYSTEM_HALL_REJECTED:
+                metrics.countHallRejected();
+                break;
+            case SYSTEM_CONNECTION_REJECTED:
+                metrics.countConnectionRejected();
+                break;
+            default:
+                metrics.countAccepted();
+                break;
+        }
+    }
+
+    /**
+     * Declares a system that passed {@link #checkSystem} as floor and
+     * records it in the level index.
+     *
+     * @param world   the game world, a 2-d array.
+     * @param index   the index of the world, or null.
+     * @param systems an array of systems stored by {@link #drawSystem}.
+     * @param at      the index of the system's first entry.
+     */
+    static void commitSystem(Tile[][] world, LevelIndex index, int[] systems, int at) {
+        int roomX = systems[at];
+        int roomY = systems[at + 1];
+        int roomW = systems[at + 2];
+        int roomH = systems[at + 3];
+        int hallX = systems[at + 4];
+        int hallY = systems[at + 5];
+        int hallW = systems[at + 6];
+        int hallH = systems[at + 7];
+        fill(world, roomX, roomY, roomW, roomH, index);
+        fill(world, hallX, hallY, hallW, hallH, index);
+        if (index != null) {
+            StructureIndex structures = index.structures();
+            structures.add(StructureIndex.ROOM, roomX, roomY, roomX + roomW, roomY + roomH);
+            structures.add(StructureIndex.HALLWAY, hallX, hallY, hallX + hallW, hallY + hallH);
+        }
+    }
+
+    /* Draws the length of a hallway as genRandomHall does. */
+    private static int genRandomHallLength(Random rand) {
+        int length = 0;
+        while (length == 0 || Math.abs(length) == 1) {
+            length = RandomUtils.uniform(rand, 2, 14);
+        }
+        return length;
+    }
 
-        int[] hallPos = new int[2];
-        hallPos = findHallwayPos(world, rand, roomShape, roomPos, hallShape);
+    /* Checks a w x h structure at (x, y) and the ring of tiles around it
+       lie inside the world border, and for rooms that none of them is
+       floor. Equivalent to checkEmptyTiles for positive shapes. */
+    private static boolean fits(Tile[][] world, int x, int y, int w, int h, boolean room) {
+        if (x - 1 < 1 || y - 1 < 1 || x + w >= WIDTH - 1 || y + h >= HEIGHT - 1) {
+            return false;
+        } else if (!room) {
+            return true;
+        }
+        for (int i = x - 1; i <= x + w; i++) {
+            Tile[] column = world[i];
+            for (int j = y - 1; j <= y + h; j++) {
+                if (column[j] == TileSet.FLOOR) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 
-        /* Places system if it passes checks */
-        if (checkEmptyTiles(world, roomShape, roomPos, "room")
-                && checkEmptyTiles(world, hallShape, hallPos, "hallway")
-                /* Ensures that new structure connects to existing structure */
-                && checkSystemConnection(world, hallShape, hallPos)) {
-            placerHelper(world, roomShape, roomPos);
-            placerHelper(world, hallShape, hallPos);
+    /* Declares a w x h structure at (x, y) as floor, in the order
+       placerHelper does. */
+    private static void fill(Tile[][] world, int x, int y, int w, int h, LevelIndex index) {
+        for (int i = x; i < x + w; i++) {
+            for (int j = y; j < y + h; j++) {
+                LevelIndex.set(world, i, j, TileSet.FLOOR, index);
+            }
         }
     }
 
@@ -168,19 +415,82 @@ public class Game implements Serializable {
      * @param seed a integer seed for procedural generation.
      */
     public static void genRandomWorld(Game g, int seed) {
-        g.seed = seed;
+        genRandomWorld(g, seed, g.worldGenerator());
+    }
+
+    /**
+     * Initializes game world and map with a given generator.
+     *
+     * @param g         a Game object
+     * @param seed      a integer seed for procedural generation.
+     * @param generator the algorithm that lays out the map.
+     */
+    public static void genRandomWorld(Game g, int seed, WorldGenerator generator) {
+        genRandomWorld(g, seed, generator, null);
+    }
+
+    /**
+     * Initializes game world and map unless a bound abandons the level
+     * first, in which case the world is left half-built and no Player or
+     * ladder is placed.
+     *
+     * @param g         a Game object
+     * @param seed      a integer seed for procedural generation.
+     * @param generator the algorithm that lays out the map.
+     * @param bound     decides whether to go on, or null to never abandon.
+     * @return whether the world was completed.
+     */
+    static boolean genRandomWorld(Game g, int seed, WorldGenerator generator,
+                                  WorldGenerator.Bound bound) {
         Random rand = new Random(seed); // Generate Random object
-        int numStructures = RandomUtils.uniform(rand, 10000);
+        WorldGenerator.Steps steps = startWorld(g, seed, rand, generator, bound);
+        while (steps.step()) {
+            continue;
+        }
+        if (!steps.completed()) {
+            return false;
+        }
+        finishWorld(g, rand);
+        return true;
+    }
+
+    /**
+     * Clears the world for generation and starts generating it in steps.
+     *
+     * @param g         a Game object
+     * @param seed      a integer seed for procedural generation.
+     * @param rand      a random number generator calibrated to the seed.
+     * @param generator the algorithm that lays out the map.
+     * @param bound     decides whether to go on, or null to never abandon.
+     */
+    static WorldGenerator.Steps startWorld(Game g, int seed, Random rand,
+                                           WorldGenerator generator,
+                                           WorldGenerator.Bound bound) {
+        g.seed = seed;
+        GenMetrics metrics = g.recordMetrics ? new GenMetrics("world", seed) : null;
+        g.worldMetrics = metrics;
 
         /* generate new map */
         g.world = initWorld();
-        initMap(g.world, rand);
-        for (int i = 0; i < numStructures; i++) { // Place all other rooms
-            placeSystem(g.world, rand);
-        }
-        placeWalls(g.world); // Place walls
+        g.worldExplored = null;
+        g.worldIndex = new LevelIndex(WIDTH, HEIGHT);
+        return generator.start(g.world, rand, g.worldIndex, metrics, bound);
+    }
+
+    /**
+     * Places the Player and the ladder in a generated world.
+     *
+     * @param g    a Game object
+     * @param rand the random number generator the world was generated with.
+     */
+    static void finishWorld(Game g, Random rand) {
+        GenMetrics metrics = g.worldMetrics;
+        long t = metrics != null ? System.nanoTime() : 0L;
         spawnPlayer(g, rand);
         spawnLadder(g, g.world, rand);
+        if (metrics != null) {
+            GenMetrics.lap(t, metrics::addSpawnNanos);
+        }
     }
 
     /**
@@ -190,18 +500,82 @@ public class Game implements Serializable {
      * @param seed a integer seed for procedural generation.
      */
     public static void genRandomOverworld(Game g, int seed) {
+        genRandomOverworld(g, seed, g.overworldGenerator());
+    }
+
+    /**
+     * Initializes overworld and map with a given generator.
+     *
+     * @param g         a Game object
+     * @param seed      a integer seed for procedural generation.
+     * @param generator the algorithm that lays out the map.
+     */
+    public static void genRandomOverworld(Game g, int seed, WorldGenerator generator) {
+        genRandomOverworld(g, seed, generator, null);
+    }
+
+    /**
+     * Initializes overworld and map unless a bound abandons the level
+     * first, in which case no ladder is placed.
+     *
+     * @param g         a Game object
+     * @param seed      a integer seed for procedural generation.
+     * @param generator the algorithm that lays out the map.
+     * @param bound     decides whether to go on, or null to never abandon.
+     * @return whether the overworld was completed.
+     */
+    static boolean genRandomOverworld(Game g, int seed, WorldGenerator generator,
+                                      WorldGenerator.Bound bound) {
         Random rand = new Random(seed); // Generate Random object
-        int numStructures = RandomUtils.uniform(rand, 10000);
+        WorldGenerator.Steps steps = startOverworld(g, seed, rand, generator, bound);
+        while (steps.step()) {
+            continue;
+        }
+        if (!steps.completed()) {
+            return false;
+        }
+        finishOverworld(g, rand);
+        return true;
+    }
+
+    /**
+     * Clears the overworld for generation and starts generating it in
+     * steps.
+     *
+     * @param g         a Game object
+     * @param seed      a integer seed for procedural generation.
+     * @param rand      a random number generator calibrated to the seed.
+     * @param generator the algorithm that lays out the map.
+     * @param bound     decides whether to go on, or null to never abandon.
+     */
+    static WorldGenerator.Steps startOverworld(Game g, int seed, Random rand,
+                                               WorldGenerator generator,
+                                               WorldGenerator.Bound bound) {
+        GenMetrics metrics = g.recordMetrics ? new GenMetrics("overworld", seed) : null;
+        g.overworldMetrics = metrics;
 
         /* generate new map */
         g.overworld = initWorld();
-        initMap(g.overworld, rand);
-        for (int i = 0; i < numStructures; i++) { // Place all other rooms
-            placeSystem(g.overworld, rand);
-        }
-        placeWalls(g.overworld); // Place walls
+        g.overworldExplored = null;
+        g.overworldIndex = new LevelIndex(WIDTH, HEIGHT);
+        return generator.start(g.overworld, rand, g.overworldIndex, metrics, bound);
+    }
+
+    /**
+     * Places the ladder in a generated overworld.
+     *
+     * @param g    a Game object
+     * @param rand the random number generator the overworld was generated with.
+     */
+    static void finishOverworld(Game g, Random rand) {
+        GenMetrics metrics = g.overworldMetrics;
+        long t = metrics != null ? System.nanoTime() : 0L;
         spawnoverLadder(g, g.overworld, rand);
+        if (metrics != null) {
+            GenMetrics.lap(t, metrics::addSpawnNanos);
+        }
     }
+
     /* ++++++++++++++++++++ TILE PLACEMENT FUNCTIONS +++++++++++++++++++++++ */
 
     /**
@@ -214,33 +588,56 @@ public class Game implements Serializable {
      * @param pos   two-element integer array with placement coordinates.
      */
     public static void placerHelper(Tile[][] world, int[] shape, int[] pos) {
+        placerHelper(world, shape, pos, null);
+    }
+
+    /**
+     * Declares the tiles of a structure as "FLOOR" and records them in the
+     * level index.
+     *
+     * @param world the game world, a 2-d array.
+     * @param shape two-element integer array with dimensions of structure.
+     * @param pos   two-element integer array with placement coordinates.
+     * @param index the index of the world, or null.
+     */
+    public static void placerHelper(Tile[][] world, int[] shape, int[] pos,
+                                    LevelIndex index) {
         if (pos[0] > 0 && pos[1] > 0) {
             for (int i = 0; i < shape[0]; i++) {
                 for (int j = 0; j < shape[1]; j++) {
-                    world[pos[0] + i][pos[1] + j] = TileSet.FLOOR;
+                    LevelIndex.set(world, pos[0] + i, pos[1] + j, TileSet.FLOOR, index);
                 }
             }
         } else if (pos[0] < 0 && pos[1] < 0) {
             for (int i = 0; i > shape[0]; i--) {
                 for (int j = 0; j > shape[1]; j--) {
-                    world[pos[0] + i][pos[1] + j] = TileSet.FLOOR;
+                    LevelIndex.set(world, pos[0] + i, pos[1] + j, TileSet.FLOOR, index);
                 }
             }
         } else if (pos[0] > 0) {
             for (int i = 0; i < shape[0]; i++) {
                 for (int j = 0; j > shape[1]; j--) {
-                    world[pos[0] + i][pos[1] + j] = TileSet.FLOOR;
+                    LevelIndex.set(world, pos[0] + i, pos[1] + j, TileSet.FLOOR, index);
                 }
             }
         } else {
             for (int i = 0; i > shape[0]; i--) {
                 for (int j = 0; j < shape[1]; j++) {
-                    world[pos[0] + i][pos[1] + j] = TileSet.FLOOR;
+                    LevelIndex.set(world, pos[0] + i, pos[1] + j, TileSet.FLOOR, index);
                 }
             }
         }
     }
 
+    /* Places a structure and records it in the level's structure index. */
+    private static void placeStructure(Tile[][] world, byte kind, int[] shape, int[] pos,
+                                       LevelIndex index) {
+        placerHelper(world, shape, pos, index);
+        if (index != null) {
+            index.structures().add(kind, shape, pos);
+        }
+    }
+
     /**
      * Checks if a set of tiles in the world are empty and available for
      * structure placement.
@@ -251,6 +648,7 @@ public class Game implements Serializable {
      */
     public static boolean checkEmptyTiles(Tile[][] world, int[] shape,
                                           int[] pos, String type) {
+        boolean room = type.equals("room");
         for (int i = -1; i < shape[0] + 1; i++) {
             for (int j = -1; j < shape[1] + 1; j++) {
                 int x = pos[0] + i;
@@ -259,7 +657,7 @@ public class Game implements Serializable {
                     return false;
                 } else if (x < 1 || y < 1) {
                     return false;
-                } else if (type.equals("room") && world[x][y] == TileSet.FLOOR) {
+                } else if (room && world[x][y] == TileSet.FLOOR) {
                     return false;
                 }
             }
@@ -314,15 +712,27 @@ public class Game implements Serializable {
      * @param pos   two-element integer array with placement coordinates.
      */
     public static boolean checkBorderTile(Tile[][] world, int[] pos) {
-        if (pos[0] < 0 || pos[1] < 0) {
+        return isBorderTile(world, pos[0], pos[1]);
+    }
+
+    /**
+     * Checks if the tile at (px, py) is a border tile. Tiles on the edge
+     * of the world are never border tiles.
+     *
+     * @param world the game world, a 2-d array.
+     * @param px    the x-coordinate of the tile.
+     * @param py    the y-coordinate of the tile.
+     */
+    public static boolean isBorderTile(Tile[][] world, int px, int py) {
+        if (px < 1 || py < 1) {
             return false;
-        } else if (world[pos[0]][pos[1]] == TileSet.NOTHING) {
+        } else if (world[px][py] == TileSet.NOTHING) {
             return false;
         } else {
             for (int i = -1; i < 2; i++) {
                 for (int j = -1; j < 2; j++) {
-                    int x = pos[0] + i;
-                    int y = pos[1] + j;
+                    int x = px + i;
+                    int y = py + j;
                     if (x >= WIDTH - 1 || y >= HEIGHT - 1) {
                         return false;
                     } else if (world[x][y] == TileSet.NOTHING) {
@@ -356,6 +766,23 @@ public class Game implements Serializable {
         return pos;
     }
 
+    /**
+     * Finds a random border tile with one draw from the level index.
+     *
+     * @param index the index of the world.
+     * @param rand  a random number generator calibrated to a seed.
+     * @return the coordinates of the tile, or {-1, -1} if the level has no
+     * border tiles.
+     */
+    public static int[] findBorderTile(LevelIndex index, Random rand) {
+        CellList borders = index.borders();
+        if (borders.size() == 0) {
+            return new int[]{-1, -1};
+        }
+        int cell = borders.get(RandomUtils.uniform(rand, borders.size()));
+        return new int[]{index.cellX(cell), index.cellY(cell)};
+    }
+
     /**
      * Checks if a staged system placement position is valid. To clarify,
      * this function returns true when the hallway of a staged system will
@@ -393,10 +820,20 @@ public class Game implements Serializable {
      * @param world the game world, a 2-d array.
      */
     public static void placeWalls(Tile[][] world) {
+        placeWalls(world, null);
+    }
+
+    /**
+     * Places all wall tiles and records them in the level index.
+     *
+     * @param world the game world, a 2-d array.
+     * @param index the index of the world, or null.
+     */
+    public static void placeWalls(Tile[][] world, LevelIndex index) {
         for (int i = 0; i < WIDTH; i++) {
             for (int j = 0; j < HEIGHT; j++) {
                 if (world[i][j].equals(TileSet.FLOOR)) {
-                    setWall(world, i, j);
+                    setWall(world, i, j, index);
                 }
             }
         }
@@ -411,10 +848,22 @@ public class Game implements Serializable {
      * @param j     the y-coordinate of the target tile.
      */
     public static void setWall(Tile[][] world, int i, int j) {
+        setWall(world, i, j, null);
+    }
+
+    /**
+     * Places walls around a target tile and records them in the level index.
+     *
+     * @param world the game world, a 2-d array.
+     * @param i     the x-coordinate of the target tile.
+     * @param j     the y-coordinate of the target tile.
+     * @param index the index of the world, or null.
+     */
+    public static void setWall(Tile[][] world, int i, int j, LevelIndex index) {
         for (int n = -1; n < 2; n++) {
             for (int k = -1; k < 2; k++) {
                 if (world[i + n][j + k].equals(TileSet.NOTHING)) {
-                    world[i + n][j + k] = TileSet.WALL;
+                    LevelIndex.set(world, i + n, j + k, TileSet.WALL, index);
                 }
             }
         }
@@ -491,6 +940,195 @@ public class Game implements Serializable {
         return distance;
     }
 
+    /**
+     * Returns the current level.
+     */
+    public Tile[][] world() {
+        return world;
+    }
+
+    /**
+     * Checks if the Player has just climbed and not moved since, in which
+     * case standing on the ladder does not climb it again.
+     */
+    boolean isClimbing() {
+        return climbing;
+    }
+
+    /**
+     * Returns the level on the other end of the ladder.
+     */
+    public Tile[][] overworld() {
+        generatePendingOverworld();
+        return overworld;
+    }
+
+    /**
+     * Returns the seed of the current game.
+     */
+    public int seed() {
+        return seed;
+    }
+
+    /**
+     * Returns a copy of the Player's coordinates.
+     */
+    public int[] playerPos() {
+        return playerPos.clone();
+    }
+
+    /**
+     * Opens the current level to many concurrent actors. The Player joins
+     * as actor 0 at their current position; the game itself is unchanged.
+     *
+     * @param capacity the most actors the shared level can hold.
+     */
+    public SharedWorld share(int capacity) {
+        SharedWorld shared = new SharedWorld(world, capacity);
+        shared.spawn(playerPos[0], playerPos[1], TileSet.PLAYER);
+        return shared;
+    }
+
+    /**
+     * Returns a copy of the coordinates of the ladder on the current level.
+     */
+    public int[] ladderPos() {
+        return ladderPos.clone();
+    }
+
+    /**
+     * Returns a copy of the coordinates of the ladder on the overworld.
+     */
+    public int[] overladderPos() {
+        generatePendingOverworld();
+        return overladderPos.clone();
+    }
+
+    /**
+     * Chooses the algorithms that lay out levels generated afterwards.
+     * Null selects the original room-and-hallway generator.
+     *
+     * @param world     the generator of the world.
+     * @param overworld the generator of the overworld.
+     */
+    public void setGenerators(WorldGenerator world, WorldGenerator overworld) {
+        this.worldGenerator = world;
+        this.overworldGenerator = overworld;
+    }
+
+    /**
+     * Returns the generator of the world.
+     */
+    public WorldGenerator worldGenerator() {
+        return worldGenerator != null ? worldGenerator : new RoomHallGenerator();
+    }
+
+    /**
+     * Returns the generator of the overworld.
+     */
+    public WorldGenerator overworldGenerator() {
+        return overworldGenerator != null ? overworldGenerator : new RoomHallGenerator();
+    }
+
+    /**
+     * Turns generation metrics on or off for levels generated afterwards.
+     *
+     * @param recordMetrics whether to collect generation metrics.
+     */
+    public void setRecordMetrics(boolean recordMetrics) {
+        this.recordMetrics = recordMetrics;
+    }
+
+    /**
+     * Returns the metrics of the last generated world, or null if metrics
+     * were off when it was generated.
+     */
+    public GenMetrics worldMetrics() {
+        return worldMetrics;
+    }
+
+    /**
+     * Returns the metrics of the last generated overworld, or null if
+     * metrics were off when it was generated.
+     */
+    public GenMetrics overworldMetrics() {
+        generatePendingOverworld();
+        return overworldMetrics;
+    }
+
+    /**
+     * Returns the index of a level of this game, or null if the array is
+     * not one of its levels. Indexes are not saved with the game, so a
+     * loaded level is indexed on first use.
+     *
+     * @param level the current world or the overworld.
+     */
+    LevelIndex index(Tile[][] level) {
+        if (level == null) {
+            return null;
+        } else if (level == world) {
+            if (worldIndex == null) {
+                worldIndex = LevelIndex.of(world);
+            }
+            return worldIndex;
+        } else if (level == overworld) {
+            if (overworldIndex == null) {
+                overworldIndex = LevelIndex.of(overworld);
+            }
+            return overworldIndex;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of a level of this game, or a fresh index of the
+     * array if it is not one of its levels.
+     *
+     * @param level a game world.
+     */
+    private LevelIndex indexFor(Tile[][] level) {
+        LevelIndex index = index(level);
+        return index != null ? index : LevelIndex.of(level);
+    }
+
+    /**
+     * Returns the connectivity index of the current level.
+     */
+    public Connectivity regions() {
+        return index(world).regions();
+    }
+
+    /**
+     * Returns the rooms and hallways of the current level. Loaded levels
+     * and cave levels have none.
+     */
+    public StructureIndex structures() {
+        return index(world).structures();
+    }
+
+    /**
+     * Returns the Zobrist hash of the current level. The hash is kept up
+     * to date as tiles change, so this costs O(1).
+     */
+    public long worldHash() {
+        return index(world).hash();
+    }
+
+    /**
+     * Returns a 64-bit hash of the whole game state: both levels, which of
+     * them is current, and whether the Player has just climbed. Equal
+     * states have equal hashes, so this can key caches and replace deep
+     * comparisons of the levels, up to hash collisions.
+     */
+    public long stateHash() {
+        generatePendingOverworld();
+        long h = worldHash();
+        if (overworld != null) {
+            h ^= Long.rotateLeft(index(overworld).hash(), 1);
+        }
+        return climbing ? ~h : h;
+    }
+
     /* ==================================================================== */
     /* =================== INTERACTIVE GAME UI FUNCTIONS ================== */
     /* ==================================================================== */
@@ -512,6 +1150,15 @@ public class Game implements Serializable {
      * @param g a serializable game object
      */
     public static void quitGame(Game g) {
+        if (SAVES != null) {
+            try (SaveStore store = SaveStore.open(Path.of(SAVES))) {
+                saveGame(g, store, SLOT);
+            } catch (IOException e) {
+                System.out.println(e);
+                System.exit(0);
+            }
+            return;
+        }
         File f = new File("./game.ser");
         try {
             if (!f.exists()) {
@@ -535,6 +1182,18 @@ public class Game implements Serializable {
      * then a new random game is generated.
      */
     private static Game loadGame() {
+        if (SAVES != null) {
+            try (SaveStore store = SaveStore.open(Path.of(SAVES))) {
+                Game loadGame = loadGame(store, SLOT);
+                return loadGame != null ? loadGame : newGame();
+            } catch (IOException e) {
+                System.out.println(e);
+                return newGame();
+            } catch (ClassNotFoundException e) {
+                System.out.println("class not found");
+                return newGame();
+            }
+        }
         File f = new File("./game.ser");
         if (f.exists()) {
             try {
@@ -560,38 +1219,122 @@ public class Game implements Serializable {
         return newGame();
     }
 
+    /**
+     * Saves a game to a slot of a save store. The save is durable once the
+     * store syncs, which it does in batches and on close.
+     *
+     * @param g     a serializable game object
+     * @param store the save store.
+     * @param slot  the slot of the game, such as a session id.
+     */
+    public static void saveGame(Game g, SaveStore store, long slot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream os = new ObjectOutputStream(bytes)) {
+            os.writeObject(g);
+        }
+        store.put(slot, bytes.toByteArray());
+    }
+
+    /**
+     * Loads the game saved to a slot of a save store.
+     *
+     * @param store the save store.
+     * @param slot  the slot of the game.
+     * @return the game, or null if the slot is empty.
+     */
+    public static Game loadGame(SaveStore store, long slot)
+            throws IOException, ClassNotFoundException {
+        byte[] data = store.get(slot);
+        if (data == null) {
+            return null;
+        }
+        try (ObjectInputStream os = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Game) os.readObject();
+        }
+    }
+
     /** Places the Player at a random point.
      *
      * @param g a serializable game object
      * @param rand a calibrated random number generator.
      */
     public static void spawnPlayer(Game g, Random rand) {
+        LevelIndex index = g.indexFor(g.world);
+        int cell = spawnCell(g.world, index, rand);
+        g.playerPos[0] = index.cellX(cell);
+        g.playerPos[1] = index.cellY(cell);
+        LevelIndex.set(g.world, g.playerPos[0], g.playerPos[1], TileSet.PLAYER, index);
+    }
+
+    /**
+     * Helper function for the spawns. Picks a point in the middle third of
+     * the world, and if it is not a floor tile, draws a floor tile
+     * uniformly from the whole world instead.
+     *
+     * @param world the game world, a 2-d array.
+     * @param index the index of the world.
+     * @param rand  a calibrated random number generator.
+     * @return the cell number of a floor tile.
+     */
+    private static int spawnCell(Tile[][] world, LevelIndex index, Random rand) {
         int x = RandomUtils.uniform(rand, WIDTH / 3, 2 * WIDTH / 3);
         int y = RandomUtils.uniform(rand, HEIGHT / 3, 2 * HEIGHT / 3);
-        while (g.world[x][y] != TileSet.FLOOR) {
-            x = RandomUtils.uniform(rand, 0, WIDTH);
-            y = RandomUtils.uniform(rand, 0, HEIGHT);
+        if (world[x][y] == TileSet.FLOOR) {
+            return x * HEIGHT + y;
         }
-        g.playerPos[0] = x;
-        g.playerPos[1] = y;
-        g.world[x][y] = TileSet.PLAYER;
+        CellList floors = index.floors();
+        return floors.get(RandomUtils.uniform(rand, floors.size()));
     }
 
-    /** Places the ladder at a random point.
+    /** Places the ladder at a random point reachable from the Player.
      *
      * @param g a serializable game object
      * @param rand a calibrated random number generator.
      */
     public static void spawnLadder(Game g, Tile[][] world, Random rand) {
-        int x = RandomUtils.uniform(rand, WIDTH / 3, 2 * WIDTH / 3);
-        int y = RandomUtils.uniform(rand, HEIGHT / 3, 2 * HEIGHT / 3);
-        while (world[x][y] != TileSet.FLOOR) {
-            x = RandomUtils.uniform(rand, 0, WIDTH);
-            y = RandomUtils.uniform(rand, 0, HEIGHT);
+        LevelIndex index = g.indexFor(world);
+        Connectivity regions = index.regions();
+        int cell = spawnCell(world, index, rand);
+        if (!regions.connected(index.cellX(cell), index.cellY(cell),
+                               g.playerPos[0], g.playerPos[1])) {
+            cell = reachableCell(index, g.playerPos, rand);
+        }
+        g.ladderPos[0] = index.cellX(cell);
+        g.ladderPos[1] = index.cellY(cell);
+        LevelIndex.set(world, g.ladderPos[0], g.ladderPos[1], TileSet.LADDER, index);
+    }
+
+    /**
+     * Draws a floor tile uniformly from the region of a position, with one
+     * draw and two passes over the floor tiles. If the region has no floor
+     * tiles, draws from the whole world, as nothing is reachable.
+     *
+     * @param index the index of the world.
+     * @param pos   two-element integer array with the position.
+     * @param rand  a calibrated random number generator.
+     * @return the cell number of a floor tile.
+     */
+    private static int reachableCell(LevelIndex index, int[] pos, Random rand) {
+        Connectivity regions = index.regions();
+        CellList floors = index.floors();
+        int reachable = 0;
+        for (int i = 0; i < floors.size(); i++) {
+            int cell = floors.get(i);
+            if (regions.connected(index.cellX(cell), index.cellY(cell), pos[0], pos[1])) {
+                reachable++;
+            }
+        }
+        if (reachable == 0) {
+            return floors.get(RandomUtils.uniform(rand, floors.size()));
+        }
+        int k = RandomUtils.uniform(rand, reachable);
+        for (int i = 0; ; i++) {
+            int cell = floors.get(i);
+            if (regions.connected(index.cellX(cell), index.cellY(cell), pos[0], pos[1])
+                    && k-- == 0) {
+                return cell;
+            }
         }
-        g.ladderPos[0] = x;
-        g.ladderPos[1] = y;
-        world[x][y] = TileSet.LADDER;
     }
 
     /** Places the ladder at a random point.
@@ -600,15 +1343,11 @@ public class Game implements Serializable {
      * @param rand a calibrated random number generator.
      */
     public static void spawnoverLadder(Game g, Tile[][] world, Random rand) {
-        int x = RandomUtils.uniform(rand, WIDTH / 3, 2 * WIDTH / 3);
-        int y = RandomUtils.uniform(rand, HEIGHT / 3, 2 * HEIGHT / 3);
-        while (world[x][y] != TileSet.FLOOR) {
-            x = RandomUtils.uniform(rand, 0, WIDTH);
-            y = RandomUtils.uniform(rand, 0, HEIGHT);
-        }
-        g.overladderPos[0] = x;
-        g.overladderPos[1] = y;
-        world[x][y] = TileSet.LADDER;
+        LevelIndex index = g.indexFor(world);
+        int cell = spawnCell(world, index, rand);
+        g.overladderPos[0] = index.cellX(cell);
+        g.overladderPos[1] = index.cellY(cell);
+        LevelIndex.set(world, g.overladderPos[0], g.overladderPos[1], TileSet.LADDER, index);
     }
 
     /**
@@ -629,168 +1368,459 @@ public class Game implements Serializable {
         } else { // k == 'd'; move right
             x++;
         }
+        LevelIndex index = g.index(world);
         if (!world[x][y].equals(TileSet.WALL)) {
-            world[g.playerPos[0]][g.playerPos[1]] = TileSet.FLOOR;
+            LevelIndex.set(world, g.playerPos[0], g.playerPos[1], TileSet.FLOOR, index);
             g.playerPos[0] = x;
             g.playerPos[1] = y;
-            world[g.playerPos[0]][g.playerPos[1]] = TileSet.PLAYER;
+            LevelIndex.set(world, g.playerPos[0], g.playerPos[1], TileSet.PLAYER, index);
             g.climbing = false;
         }
         if (!Arrays.equals(g.playerPos, g.ladderPos)) {
-            world[g.ladderPos[0]][g.ladderPos[1]] = TileSet.LADDER;
+            LevelIndex.set(world, g.ladderPos[0], g.ladderPos[1], TileSet.LADDER, index);
+        }
+        if (g.fogOfWar && world == g.world) {
+            g.updateView();
         }
+        g.emit();
     }
 
+    /* ++++++++++++++++++++++ FIELD OF VIEW FUNCTIONS ++++++++++++++++++++++++ */
+
     /**
-     * Renders the main menu.
+     * Turns the fog of war on or off. While it is on, only tiles that the
+     * Player can see or has already seen are drawn.
+     *
+     * @param fogOfWar whether to hide unexplored tiles.
      */
-    public void drawMenu(String input) {
-        int midWidth = WIDTH / 2;
-        int midHeight = HEIGHT / 2 + 3;
-        int topHeight = 3 * HEIGHT / 4 + 3;
+    public void setFogOfWar(boolean fogOfWar) {
+        this.fogOfWar = fogOfWar;
+        if (fogOfWar && world != null) {
+            updateView();
+        }
+    }
 
-        StdDraw.clear(Color.black);
+    /**
+     * Checks if the fog of war is on.
+     */
+    public boolean isFogOfWar() {
+        return fogOfWar;
+    }
 
-        // Draw the actual text
-        Font defaultFont = new Font("Sans Serif", Font.PLAIN, 16);
-        Font bigFont = new Font("Monaco", Font.BOLD, 30);
-        StdDraw.setFont(bigFont);
-        StdDraw.setPenColor(Color.white);
-        StdDraw.text(midWidth, topHeight, "Abyss");
-        if (input.length() == 0) {
-        StdDraw.text(midWidth, midHeight, "New Game (N)");
-        StdDraw.text(midWidth, midHeight - 2, "Load (L)");
-        StdDraw.text(midWidth, midHeight - 4, "Quit (:Q)");
-        } else {
-            StdDraw.text(midWidth, midHeight, input);
+    /**
+     * Recomputes the Player's field of view on the current level and marks
+     * the visible tiles as explored.
+     */
+    private void updateView() {
+        if (view == null) {
+            view = new FieldOfView(WIDTH, HEIGHT, SIGHT_RADIUS);
+        }
+        if (worldExplored == null) {
+            worldExplored = new long[FieldOfView.words(WIDTH, HEIGHT)];
         }
+        view.compute(world, playerPos[0], playerPos[1], worldExplored);
+    }
 
-        StdDraw.show();
-        StdDraw.setFont(defaultFont);
+    /**
+     * Returns the current level as the Player sees it. Tiles that have
+     * never been in view are drawn as empty. The returned array is reused
+     * between frames.
+     */
+    public Tile[][] visibleWorld() {
+        if (!fogOfWar) {
+            return world;
+        }
+        if (fogFrame == null) {
+            fogFrame = new Tile[WIDTH][HEIGHT];
+        }
+        if (worldExplored == null) {
+            updateView();
+        }
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                if (view.isExplored(worldExplored, x, y)) {
+                    fogFrame[x][y] = world[x][y];
+                } else {
+                    fogFrame[x][y] = TileSet.NOTHING;
+                }
+            }
+        }
+        return fogFrame;
     }
 
+    /* ++++++++++++++++++++++++ EVENT FUNCTIONS +++++++++++++++++++++++++ */
+
     /**
-     * Renders the heads up display (HUD).
+     * Records the session to an event stream from now on, starting with a
+     * keyframe of the current level. Null stops recording.
      *
-     * @param g The current game object
-     * */
-    public void drawFrame(Game g) {
-        int x = (int) StdDraw.mouseX();
-        int y = (int) StdDraw.mouseY() - 3;
-        String substrate = "";
-        if (x < WIDTH && y < HEIGHT) {
-            if (0 < x && 0 < y) {
-                substrate = g.world[x][y].description();
-            }
+     * @param events the stream to publish to, or null.
+     */
+    public void setEventStream(EventStream events) {
+        this.events = events;
+        emit();
+    }
+
+    /* Publishes the changes since the last frame, if recording. */
+    private void emit() {
+        if (events != null) {
+            events.publish(this);
         }
+    }
 
-        String timeStamp = new SimpleDateFormat("MMM dd, yyyy HH:mm:ss").format(new Date());
+    /**
+     * Returns the copy-on-write mirror of one of the game's levels.
+     *
+     * @param level the world or the overworld.
+     */
+    PersistentGrid grid(Tile[][] level) {
+        return index(level).grid(level);
+    }
 
-        g.ter.renderFrame(g.world);
+    /* ++++++++++++++++++++++ SNAPSHOT FUNCTIONS ++++++++++++++++++++++++ */
 
-        StdDraw.setPenColor(Color.white);
-        StdDraw.textLeft(1, HEIGHT + 4, "Seed:" + Integer.toString(seed));
-        StdDraw.text(WIDTH / 2, HEIGHT + 4, substrate);
-        StdDraw.textRight(WIDTH - 1, HEIGHT + 4, timeStamp);
-        StdDraw.line(0, HEIGHT + 3, WIDTH, HEIGHT + 3);
+    /**
+     * A captured state of a game: both levels and the positions on them.
+     * Levels are held as copy-on-write grid versions, so a snapshot costs
+     * O(1) to take and only the chunks changed after it use new memory.
+     */
+    public static final class Snapshot {
+        private final Tile[][] world;
+        private final Tile[][] overworld;
+        private final PersistentGrid.Snapshot worldTiles;
+        private final PersistentGrid.Snapshot overworldTiles;
+        private final int[] playerPos;
+        private final int[] ladderPos;
+        private final int[] overladderPos;
+        private final boolean climbing;
 
-        StdDraw.textLeft(1,  1,  "Movement:   Up (W)   Left (A)   Down (S)   Right (D)");
-        StdDraw.textRight(WIDTH - 1,  1,  "Quit (:Q)");
-        StdDraw.line(0, 2, WIDTH, 2);
-        StdDraw.show();
-        StdDraw.clear();
+        private Snapshot(Game g) {
+            world = g.world;
+            overworld = g.overworld;
+            worldTiles = g.grid(world).snapshot();
+            overworldTiles = g.grid(overworld).snapshot();
+            playerPos = g.playerPos.clone();
+            ladderPos = g.ladderPos.clone();
+            overladderPos = g.overladderPos.clone();
+            climbing = g.climbing;
+        }
 
+        /**
+         * Returns a copy of the current level as it was captured.
+         */
+        public Tile[][] world() {
+            return worldTiles.toArray();
+        }
     }
 
+    /**
+     * Captures the state of the game in O(1).
+     */
+    public Snapshot snapshot() {
+        generatePendingOverworld();
+        return new Snapshot(this);
+    }
+
+    /**
+     * Returns the game to a captured state. Only the tiles that changed
+     * since the snapshot are rewritten, so the cost is proportional to
+     * the changes.
+     *
+     * @param snap a snapshot of this game.
+     * @throws IllegalArgumentException if the snapshot is of another game.
+     */
+    public void restore(Snapshot snap) {
+        generatePendingOverworld();
+        if (world != snap.world) {
+            if (world != snap.overworld || overworld != snap.world) {
+                throw new IllegalArgumentException("snapshot is of another game");
+            }
+            exchangeLevels();
+        }
+        restoreLevel(world, snap.worldTiles);
+        restoreLevel(overworld, snap.overworldTiles);
+        playerPos = snap.playerPos.clone();
+        ladderPos = snap.ladderPos.clone();
+        overladderPos = snap.overladderPos.clone();
+        climbing = snap.climbing;
+        if (fogOfWar) {
+            updateView();
+        }
+        emit();
+    }
+
+    /* Rewrites the tiles of a level that differ from a grid version. */
+    private void restoreLevel(Tile[][] level, PersistentGrid.Snapshot tiles) {
+        LevelIndex index = index(level);
+        PersistentGrid grid = grid(level);
+        int[] cells = new int[WIDTH * HEIGHT];
+        int n = grid.diff(tiles, cells);
+        for (int i = 0; i < n; i++) {
+            int x = cells[i] / HEIGHT;
+            int y = cells[i] % HEIGHT;
+            LevelIndex.set(level, x, y, tiles.get(x, y), index);
+        }
+        grid.adopt(tiles);
+    }
+
+    /**
+     * Records the current state so that it can be returned to with
+     * {@link #undo()}. The history is unbounded, since a checkpoint shares
+     * every chunk the later moves left alone, and is cleared when a game
+     * is started or loaded.
+     */
+    public void checkpoint() {
+        record(snapshot());
+    }
+
+    /**
+     * Records a state captured before a move, but only if the move
+     * changed the game: the Player moved or climbed. A move into a wall
+     * leaves nothing to undo.
+     *
+     * @param before a snapshot of this game taken before the move.
+     */
+    public void checkpoint(Snapshot before) {
+        if (before.world != world || !Arrays.equals(before.playerPos, playerPos)) {
+            record(before);
+        }
+    }
+
+    private void record(Snapshot snap) {
+        if (history == null) {
+            history = new ArrayDeque<>();
+        }
+        history.push(snap);
+    }
+
+    /**
+     * Returns to the last checkpoint.
+     *
+     * @return false if there was no checkpoint to return to.
+     */
+    public boolean undo() {
+        if (history == null || history.isEmpty()) {
+            return false;
+        }
+        restore(history.pop());
+        return true;
+    }
 
     /* ==================================================================== */
     /* ========================= GAMEPLAY METHODS ========================= */
     /* ==================================================================== */
 
     /**
-     * Method used for playing a fresh game. The game should
-     * start from the main menu.
+     * Climbs the ladder the Player is standing on. The current world and
+     * the overworld trade places, along with their ladders and indexes,
+     * and the Player arrives on the other ladder.
      */
-    public void playWithKeyboard() {
-        // Show menu
-        this.ter.initialize(WIDTH, HEIGHT + 5, 0, 3);
-//        StdDraw.disableDoubleBuffering();
-        this.drawMenu("");
-        StdDraw.show();
-        boolean play = false;
-        // Player input
-        while (true) {
-            if (play) {
-                if (Arrays.equals(playerPos, ladderPos)
-                        && !climbing) {
-                    Tile[][] stagedWorld = overworld;
-                    overworld = world;
-                    world = stagedWorld;
-                    int[] stagedLadder = new int[] {-1, -1};
-                    java.lang.System.arraycopy(overladderPos, 0, stagedLadder, 0, 2);
-                    java.lang.System.arraycopy(ladderPos, 0, overladderPos, 0, 2);
-                    java.lang.System.arraycopy(stagedLadder,0,  ladderPos, 0 ,2);
-                    java.lang.System.arraycopy(ladderPos, 0, playerPos, 0 ,2);
-                    world[playerPos[0]][playerPos[1]] = TileSet.PLAYER;
-                    climbing = true;
-                }
-                drawFrame(this);
-            }
-            if (!StdDraw.hasNextKeyTyped()) {
-                continue;
-            }
-            char next = StdDraw.nextKeyTyped();
-            if (next == 'n') { // Handle new game command "n"
-                // Handle seed argument int
-                String rawSeed = "";
-                drawMenu("Type an integer seed. Press S to confirm.");
-                while (next != 's') {
-                    if (!StdDraw.hasNextKeyTyped()) {
-                        continue;
-                    }
-                    next = StdDraw.nextKeyTyped();
-                    rawSeed += String.valueOf(next);
-                    drawMenu(rawSeed);
-                }
-                seed = (int) Long.parseLong(
-                        rawSeed.substring(0, rawSeed.length() - 1));
-                genRandomWorld(this, seed);
-                genRandomOverworld(this, seed ^ 2);
-                drawFrame(this);
-                play = true;
-                /* Concurrent game commands */
-            } else if (next == ':') { // Handle quit and save command ":q"
-                while (!StdDraw.hasNextKeyTyped()) {
-                    continue;
-                }
-                if (StdDraw.nextKeyTyped() == 'q') {
-                    /* End and save game */
-                    StdDraw.clear(StdDraw.BLACK);
-                    StdDraw.show();
-                    quitGame(this);
-                    System.exit(0);
-                    break;
+    private void swapLevels() {
+        exchangeLevels();
+        int[] stagedLadder = new int[] {-1, -1};
+        java.lang.System.arraycopy(overladderPos, 0, stagedLadder, 0, 2);
+        java.lang.System.arraycopy(ladderPos, 0, overladderPos, 0, 2);
+        java.lang.System.arraycopy(stagedLadder, 0, ladderPos, 0, 2);
+        java.lang.System.arraycopy(ladderPos, 0, playerPos, 0, 2);
+        LevelIndex.set(world, playerPos[0], playerPos[1], TileSet.PLAYER, index(world));
+        climbing = true;
+        if (fogOfWar) {
+            updateView();
+        }
+        emit();
+    }
+
+    /* Trades the world and the overworld, with their indexes and explored
+       tiles. */
+    private void exchangeLevels() {
+        generatePendingOverworld();
+        Tile[][] stagedWorld = overworld;
+        overworld = world;
+        world = stagedWorld;
+        LevelIndex stagedIndex = overworldIndex;
+        overworldIndex = worldIndex;
+        worldIndex = stagedIndex;
+        long[] stagedExplored = overworldExplored;
+        overworldExplored = worldExplored;
+        worldExplored = stagedExplored;
+    }
+
+    /**
+     * Starts a new game from a seed. The overworld is generated from a
+     * variant of the same seed.
+     *
+     * @param newSeed the seed typed by the player.
+     */
+    void startGame(int newSeed) {
+        GenerationTask task = new GenerationTask(this, newSeed);
+        task.run();
+        task.finish();
+    }
+
+    /**
+     * Returns an empty game with the same generators and metrics setting,
+     * for a {@link GenerationTask} to build the levels of a new game in.
+     */
+    Game staging() {
+        Game staging = new Game();
+        staging.setGenerators(worldGenerator(), overworldGenerator());
+        staging.recordMetrics = recordMetrics;
+        return staging;
+    }
+
+    /**
+     * Replaces the levels of this game with the levels generated in a
+     * staging game, as if {@link #startGame} had generated them here.
+     *
+     * @param generated a staging game with both levels generated.
+     */
+    void install(Game generated) {
+        seed = generated.seed;
+        history = null;
+        world = generated.world;
+        worldExplored = null;
+        worldIndex = generated.worldIndex;
+        worldMetrics = generated.worldMetrics;
+        overworld = generated.overworld;
+        overworldExplored = null;
+        overworldIndex = generated.overworldIndex;
+        overworldMetrics = generated.overworldMetrics;
+        System.arraycopy(generated.playerPos, 0, playerPos, 0, 2);
+        System.arraycopy(generated.ladderPos, 0, ladderPos, 0, 2);
+        System.arraycopy(generated.overladderPos, 0, overladderPos, 0, 2);
+        overworldPending = false;
+        overladderPending = false;
+        emit();
+    }
+
+    /**
+     * Starts a new game from a seed like {@link #startGame}, but leaves
+     * the overworld to be generated when it is first looked at, which in
+     * many games is never. The result cannot be told apart from startGame.
+     *
+     * @param newSeed       the seed typed by the player.
+     * @param generateWorld whether to generate the world; false leaves the
+     *                      game without one, for a script that loads a
+     *                      saved world before looking at it.
+     */
+    void startGameLazily(int newSeed, boolean generateWorld) {
+        Game staging = staging();
+        if (generateWorld) {
+            genRandomWorld(staging, newSeed, staging.worldGenerator());
+        } else {
+            staging.seed = newSeed;
+        }
+        install(staging);
+        overworldPending = true;
+        overladderPending = true;
+        pendingSeed = newSeed;
+        pendingGenerator = staging.overworldGenerator();
+    }
+
+    /* Generates the overworld of startGameLazily if it is still due, as
+       GenerationTask would have. The ladder position is only set if no
+       load has replaced it meanwhile. */
+    private void generatePendingOverworld() {
+        if (!overworldPending) {
+            return;
+        }
+        overworldPending = false;
+        Game staging = staging();
+        genRandomOverworld(staging, pendingSeed ^ 2, pendingGenerator);
+        overworld = staging.overworld;
+        overworldExplored = null;
+        overworldIndex = staging.overworldIndex;
+        overworldMetrics = staging.overworldMetrics;
+        if (overladderPending) {
+            System.arraycopy(staging.overladderPos, 0, overladderPos, 0, 2);
+            overladderPending = false;
+        }
+    }
+
+    /* Saving writes the overworld, so it must exist first. */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        generatePendingOverworld();
+        out.defaultWriteObject();
+    }
+
+    /* Tiles are told apart by identity throughout the game, by the level
+       indexes, the field of view and the shared world alike, so the
+       deserialized copies of a save are swapped for the game's own. */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        canonicalize(world);
+        canonicalize(overworld);
+    }
+
+    /* Replaces every known tile of a level with the TileSet instance. */
+    private static void canonicalize(Tile[][] level) {
+        if (level == null) {
+            return;
+        }
+        for (Tile[] column : level) {
+            for (int y = 0; y < column.length; y++) {
+                int id = TileIds.of(column[y]);
+                if (id != TileIds.UNKNOWN) {
+                    column[y] = TileIds.tile(id);
                 }
-            } else if (next == 'l') { // Handle load command "l"
-                /* Load existing game */
-                Game oldGame = loadGame();
-                this.world = oldGame.world;
-                this.overworld = oldGame.overworld;
-                this.playerPos = oldGame.playerPos;
-                this.ladderPos = oldGame.ladderPos;
-                this.overladderPos = oldGame.overladderPos;
-                this.seed = oldGame.seed;
-                drawFrame(this);
-                play = true;
-                // Handle movement commands "wasd"
-            } else if (Arrays.asList('w', 'a', 's', 'd').contains(next)) {
-                /* Move character */
-                movePlayer(this, this.world, next);
-                drawFrame(this);
             }
         }
     }
 
+    /**
+     * Replaces the current game with the saved game, if there is one.
+     */
+    void resumeSavedGame() {
+        Game oldGame = loadGame();
+        this.world = oldGame.world;
+        this.overworld = oldGame.overworld;
+        this.worldIndex = null;
+        this.overworldIndex = null;
+        this.history = null;
+        this.worldExplored = oldGame.worldExplored;
+        this.overworldExplored = oldGame.overworldExplored;
+        this.playerPos = oldGame.playerPos;
+        this.ladderPos = oldGame.ladderPos;
+        this.overladderPos = oldGame.overladderPos;
+        this.seed = oldGame.seed;
+        overworldPending = false;
+        overladderPending = false;
+        emit();
+    }
+
+    /* Loads the saved world, Player and ladders over the current ones, as
+       "l" does in playWithInput. The overworld is kept. */
+    private void loadSavedWorld() {
+        Game oldGame = loadGame();
+        this.world = oldGame.world;
+        this.worldIndex = null;
+        this.worldExplored = oldGame.worldExplored;
+        this.playerPos = oldGame.playerPos;
+        this.ladderPos = oldGame.ladderPos;
+        this.overladderPos = oldGame.overladderPos;
+        this.seed = oldGame.seed;
+        overladderPending = false;
+        emit();
+    }
+
+    /**
+     * Climbs the ladder if the Player has just stepped onto it.
+     */
+    void climbLadder() {
+        if (Arrays.equals(playerPos, ladderPos)
+                && !climbing) {
+            swapLevels();
+        }
+    }
+
+    /**
+     * Method used for playing a fresh game. The game should
+     * start from the main menu.
+     */
+    public void playWithKeyboard() {
+        new Screen(this).playWithKeyboard();
+    }
+
     /**
      * Method used for testing the game code. The input string will be a series
      * of characters (for example, "n123sswwdasdassadwas", "n123sss:q", "lwww". The game should
@@ -810,6 +1840,44 @@ public class Game implements Serializable {
         // and return a 2D tile representation of the world that would have
         // been drawn if the same inputs had been given to playWithKeyboard().
 
+        /* Spectators and metrics see every generation, so those sessions
+           run every command as typed. */
+        ScriptPlan plan = events == null && !recordMetrics ? ScriptPlan.of(input) : null;
+        if (plan == null) {
+            return playAll(input);
+        }
+        for (int c = 0; c < plan.size(); c++) {
+            char command = plan.command(c);
+            if (command == 'n') {
+                int work = plan.work(c);
+                if (work == ScriptPlan.SKIP) {
+                    continue;
+                }
+                startGameLazily(plan.seed(c), work == ScriptPlan.FULL);
+                if (work == ScriptPlan.OVERWORLD) {
+                    continue; // there is no world to climb from until the load
+                }
+            } else if (command == 'q') {
+                quitGame(this);
+                break;
+            } else if (command == 'l') {
+                loadSavedWorld();
+            } else {
+                movePlayer(this, world, command);
+            }
+            climbLadder();
+        }
+        return this.world;
+    }
+
+    /**
+     * Runs a playWithInput script command by command, without skipping
+     * the work that {@link ScriptPlan} finds unobserved.
+     *
+     * @param input the input string to feed to your program
+     * @return the 2D Tile[][] representing the state of the world
+     */
+    Tile[][] playAll(String input) {
         // #===================== PARSE COMMAND STRING =======================#
         String rawSeed = "";
         String[] inputArray = input.split("");
@@ -821,9 +1889,7 @@ public class Game implements Serializable {
                     rawSeed += inputArray[i];
                     i++;
                 }
-                seed = (int) Long.parseLong(rawSeed);
-                genRandomWorld(this, seed);
-                genRandomOverworld(this, seed ^ 2);
+                startGame((int) Long.parseLong(rawSeed));
             } else if (inputArray[i].equals(":")) { // Handle quit and save command ":q
                 if (inputArray[i + 1].equals("q")) {
                     /* End and save game */
@@ -832,31 +1898,14 @@ public class Game implements Serializable {
                 }
             } else if (inputArray[i].equals("l")) { // Handle load command "l"
                 /* Load existing game */
-                Game oldGame = loadGame();
-                this.world = oldGame.world;
-                this.playerPos = oldGame.playerPos;
-                this.ladderPos = oldGame.ladderPos;
-                this.overladderPos = oldGame.overladderPos;
-                this.seed = oldGame.seed;
+                loadSavedWorld();
 
                 // Handle movement commands "wasd"
             } else if (java.util.Arrays.asList("w", "a", "s", "d").contains(inputArray[i])) {
                 /* Move character */
                 movePlayer(this, world, inputArray[i].charAt(0));
             }
-            if (Arrays.equals(playerPos, ladderPos)
-                    && !climbing) {
-                Tile[][] stagedWorld = overworld;
-                overworld = world;
-                world = stagedWorld;
-                int[] stagedLadder = new int[] {-1, -1};
-                java.lang.System.arraycopy(overladderPos, 0, stagedLadder, 0, 2);
-                java.lang.System.arraycopy(ladderPos, 0, overladderPos, 0, 2);
-                java.lang.System.arraycopy(stagedLadder,0,  ladderPos, 0 ,2);
-                java.lang.System.arraycopy(ladderPos, 0, playerPos, 0 ,2);
-                world[playerPos[0]][playerPos[1]] = TileSet.PLAYER;
-                climbing = true;
-            }
+            climbLadder();
             i++;
         }
         return this.world;
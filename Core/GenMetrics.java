@@ -0,0 +1,173 @@
+package Core;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Counters and phase timings collected while generating a single level.
+ * A collector is only created when metrics are enabled on a game, so the
+ * generation code pays a null check per event when they are off.
+ * <p>
+ * Each collector reports itself as one CSV record, see {@link #HEADER}.
+ */
+public class GenMetrics {
+    /** Column names of the records produced by {@link #toString()}. */
+    public static final String HEADER = "level,seed,structures,attempts,accepted,"
+            + "roomRejected,hallRejected,connectionRejected,initMapAttempts,"
+            + "initMapNanos,placementNanos,wallNanos,spawnNanos";
+
+    private final String level;
+    private final int seed;
+    private int structures;
+    private int attempts;
+    private int accepted;
+    private int roomRejected;
+    private int hallRejected;
+    private int connectionRejected;
+    private int initMapAttempts;
+    private long initMapNanos;
+    private long placementNanos;
+    private long wallNanos;
+    private long spawnNanos;
+
+    /**
+     * Creates an empty collector for one level.
+     *
+     * @param level a label for the level, such as "world" or "overworld".
+     * @param seed  the seed the level is generated from.
+     */
+    public GenMetrics(String level, int seed) {
+        this.level = level;
+        this.seed = seed;
+    }
+
+    /* ++++++++++++++++++++++ EVENT FUNCTIONS ++++++++++++++++++++++++ */
+
+    void setStructures(int n) {
+        structures = n;
+    }
+
+    void countInitMapAttempt() {
+        initMapAttempts++;
+    }
+
+    void countAttempt() {
+        attempts++;
+    }
+
+    void countAccepted() {
+        accepted++;
+    }
+
+    void countRoomRejected() {
+        roomRejected++;
+    }
+
+    void countHallRejected() {
+        hallRejected++;
+    }
+
+    void countConnectionRejected() {
+        connectionRejected++;
+    }
+
+    void addInitMapNanos(long nanos) {
+        initMapNanos += nanos;
+    }
+
+    void addPlacementNanos(long nanos) {
+        placementNanos += nanos;
+    }
+
+    void addWallNanos(long nanos) {
+        wallNanos += nanos;
+    }
+
+    void addSpawnNanos(long nanos) {
+        spawnNanos += nanos;
+    }
+
+    /**
+     * Reports the time elapsed since a start time to a phase timer and
+     * returns the current time.
+     *
+     * @param start a System.nanoTime() reading.
+     * @param phase the phase timer to add the elapsed time to.
+     */
+    static long lap(long start, LongConsumer phase) {
+        long now = System.nanoTime();
+        phase.accept(now - start);
+        return now;
+    }
+
+    /* ++++++++++++++++++++++ QUERY FUNCTIONS ++++++++++++++++++++++++ */
+
+    public String level() {
+        return level;
+    }
+
+    public int seed() {
+        return seed;
+    }
+
+    public int structures() {
+        return structures;
+    }
+
+    public int attempts() {
+        return attempts;
+    }
+
+    public int accepted() {
+        return accepted;
+    }
+
+    public int roomRejected() {
+        return roomRejected;
+    }
+
+    public int hallRejected() {
+        return hallRejected;
+    }
+
+    public int connectionRejected() {
+        return connectionRejected;
+    }
+
+    public int initMapAttempts() {
+        return initMapAttempts;
+    }
+
+    public long initMapNanos() {
+        return initMapNanos;
+    }
+
+    public long placementNanos() {
+        return placementNanos;
+    }
+
+    public long wallNanos() {
+        return wallNanos;
+    }
+
+    public long spawnNanos() {
+        return spawnNanos;
+    }
+
+    /**
+     * Returns the fraction of placement attempts that were accepted.
+     */
+    public double acceptanceRate() {
+        return attempts == 0 ? 0.0 : (double) accepted / attempts;
+    }
+
+    /**
+     * Returns the metrics as one CSV record matching {@link #HEADER}.
+     */
+    @Override
+    public String toString() {
+        return level + "," + seed + "," + structures + "," + attempts + "," + accepted + ","
+                + roomRejected + "," + hallRejected + "," + connectionRejected + ","
+                + initMapAttempts + "," + initMapNanos + "," + placementNanos + ","
+                + wallNanos + "," + spawnNanos;
+    }
+}
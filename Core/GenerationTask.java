@@ -0,0 +1,156 @@
+package Core;
+
+import java.util.Random;
+
+/**
+ * The generation of a new game from a seed, as a resumable sequence of
+ * short steps. The levels are built in a separate staging game and only
+ * replace the levels of the target game in {@link #finish}, so a task can
+ * be spread over many frames, run on a worker thread, or cancelled part
+ * way without disturbing the game being played. Finishing a task gives
+ * exactly the levels {@link Game#startGame} gives for the same seed;
+ * startGame is itself a task run to completion.
+ * <p>
+ * A task uses the generators of its target game, so two tasks of one
+ * game must not run on different threads at the same time.
+ */
+public class GenerationTask implements Runnable {
+    private static final int WORLD = 0;
+    private static final int OVERWORLD = 1;
+    private static final int DONE = 2;
+
+    private final Game target;
+    private final Game staging;
+    private final int seed;
+    private int phase = WORLD;
+    private Random rand;
+    private WorldGenerator.Steps steps;
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private volatile double progress;
+
+    /**
+     * Creates a task that generates a new game for a target.
+     *
+     * @param target the game to install the new levels in.
+     * @param seed   the seed typed by the player.
+     */
+    public GenerationTask(Game target, int seed) {
+        this.target = target;
+        this.staging = target.staging();
+        this.seed = seed;
+    }
+
+    /**
+     * Does the next step of generation.
+     *
+     * @return whether there are steps left; false once the levels are
+     * generated or the task is cancelled.
+     */
+    public boolean step() {
+        if (done || cancelled) {
+            return false;
+        }
+        if (steps == null) {
+            if (phase == WORLD) {
+                rand = new Random(seed); // Generate Random object
+                steps = Game.startWorld(staging, seed, rand, staging.worldGenerator(), null);
+            } else {
+                /* The overworld is generated from a variant of the seed. */
+                rand = new Random(seed ^ 2);
+                steps = Game.startOverworld(staging, seed ^ 2, rand,
+                                            staging.overworldGenerator(), null);
+            }
+        }
+        boolean more = steps.step();
+        double levelProgress = more ? steps.progress() : 1.0;
+        progress = (phase + levelProgress) / 2.0;
+        if (!more) {
+            if (phase == WORLD) {
+                Game.finishWorld(staging, rand);
+                phase = OVERWORLD;
+            } else {
+                Game.finishOverworld(staging, rand);
+                phase = DONE;
+                done = true;
+            }
+            steps = null;
+        }
+        return !done;
+    }
+
+    /**
+     * Does steps until generation is done or a time budget runs out, for
+     * example once per frame. A step is short, so the budget is overrun
+     * by at most one step.
+     *
+     * @param nanos the time budget in nanoseconds.
+     * @return whether the levels are generated.
+     */
+    public boolean runFor(long nanos) {
+        long start = System.nanoTime();
+        while (step() && System.nanoTime() - start < nanos) {
+            continue;
+        }
+        return done;
+    }
+
+    /**
+     * Does every remaining step, unless the task is cancelled meanwhile.
+     */
+    @Override
+    public void run() {
+        while (step()) {
+            continue;
+        }
+    }
+
+    /**
+     * Stops the task. Safe to call from any thread; the current step is
+     * completed, then no more are done.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns whether both levels are generated.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the fraction of the work done, from 0 to 1, for a loading
+     * bar. Safe to call from any thread.
+     */
+    public double progress() {
+        return progress;
+    }
+
+    /**
+     * Returns the seed of the new game.
+     */
+    public int seed() {
+        return seed;
+    }
+
+    /**
+     * Replaces the levels of the target game with the generated ones.
+     * Must be called on the thread that plays the target game.
+     *
+     * @throws IllegalStateException if the task is cancelled or not done.
+     */
+    public void finish() {
+        if (cancelled) {
+            throw new IllegalStateException("generation was cancelled");
+        } else if (!done) {
+            throw new IllegalStateException("generation is not done");
+        }
+        target.install(staging);
+    }
+}
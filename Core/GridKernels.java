@@ -0,0 +1,164 @@
+package Core;
+
+import TileEngine.Tile;
+
+/**
+ * Whole-grid passes over a flat array of tile ids. A grid holds one byte
+ * per cell, indexed column-major as {@code x * height + y} like the other
+ * bitsets and cell lists, so a pass is a single loop over contiguous
+ * memory. Two implementations exist: a scalar one that runs anywhere, and
+ * one built on the {@code jdk.incubator.vector} byte lanes that is chosen
+ * when the JVM is started with {@code --add-modules jdk.incubator.vector}
+ * and the optional vector classes are on the class path. Both give
+ * identical results.
+ * <p>
+ * The implementation can be forced with {@code -Dabyss.kernels=scalar} or
+ * {@code -Dabyss.kernels=vector}.
+ */
+public abstract class GridKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static GridKernels selected;
+
+    /**
+     * Returns the fastest implementation available in this JVM.
+     */
+    public static synchronized GridKernels get() {
+        if (selected == null) {
+            String forced = System.getProperty("abyss.kernels", "");
+            if (forced.equals("scalar")) {
+                selected = new ScalarGridKernels();
+            } else {
+                selected = vector();
+                if (selected == null) {
+                    if (forced.equals("vector")) {
+                        throw new IllegalStateException(VECTOR_MODULE + " is not available");
+                    }
+                    selected = new ScalarGridKernels();
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the scalar implementation.
+     */
+    public static GridKernels scalar() {
+        return new ScalarGridKernels();
+    }
+
+    /**
+     * Returns the vector implementation, or null when the incubator module
+     * is not in the boot layer or the vector classes were not built. The
+     * class is loaded reflectively so that the game compiles and links
+     * without the module.
+     */
+    public static GridKernels vector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (GridKernels) Class.forName("Core.VectorGridKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the short name of the implementation.
+     */
+    public abstract String name();
+
+    /**
+     * Sets every cell of a grid to an id.
+     *
+     * @param grid a grid of tile ids.
+     * @param id   the id to store.
+     */
+    public abstract void fill(byte[] grid, byte id);
+
+    /**
+     * Replaces every occurrence of one id with another.
+     *
+     * @param grid a grid of tile ids.
+     * @param from the id to replace.
+     * @param to   the replacement id.
+     */
+    public abstract void replace(byte[] grid, byte from, byte to);
+
+    /**
+     * Counts the cells holding an id.
+     *
+     * @param grid a grid of tile ids.
+     * @param id   the id to count.
+     */
+    public abstract int count(byte[] grid, byte id);
+
+    /**
+     * Sets the bit of every cell holding an id in a bitset. Other bits are
+     * left unchanged, so masks of several ids can be combined.
+     *
+     * @param grid a grid of tile ids.
+     * @param id   the id to select.
+     * @param bits a bitset of at least {@code (grid.length + 63) / 64} words.
+     */
+    public abstract void mask(byte[] grid, byte id, long[] bits);
+
+    /**
+     * Lists the cells whose ids differ between two grids, in ascending
+     * order.
+     *
+     * @param a     a grid of tile ids.
+     * @param b     a grid of the same length.
+     * @param cells receives the differing cells; as long as the grids.
+     * @return the number of differing cells.
+     */
+    public abstract int diff(byte[] a, byte[] b, int[] cells);
+
+    /**
+     * Copies the tile ids of a world into a grid.
+     *
+     * @param world the game world, a 2-d array.
+     * @param grid  a grid of width * height cells, or null.
+     * @return the grid, allocated if null was given.
+     */
+    public static byte[] flatten(Tile[][] world, byte[] grid) {
+        int height = world[0].length;
+        if (grid == null) {
+            grid = new byte[world.length * height];
+        }
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < height; y++) {
+                grid[x * height + y] = (byte) TileIds.of(world[x][y]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Copies a grid back into the tiles of a world.
+     *
+     * @param grid  a grid of tile ids, without UNKNOWN cells.
+     * @param world the game world to overwrite.
+     */
+    public static void expand(byte[] grid, Tile[][] world) {
+        int height = world[0].length;
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < height; y++) {
+                world[x][y] = TileIds.tile(grid[x * height + y]);
+            }
+        }
+    }
+
+    /* Checks that two grids can be compared cell by cell. */
+    static void checkDiff(byte[] a, byte[] b, int[] cells) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("grids differ in size: "
+                                               + a.length + " and " + b.length);
+        }
+        if (cells.length < a.length) {
+            throw new IllegalArgumentException("cell buffer too small: " + cells.length);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+/**
+ * Incremental indexes over the tiles of one level. Every tile write made
+ * by generation and gameplay goes through {@link #set}, which keeps the
+ * connectivity index, the Zobrist hash and the lists of floor and border
+ * cells of the level up to date in O(1). Generators also record the
+ * rooms and hallways they place in its {@link StructureIndex}.
+ * Indexes are not saved with a game; a loaded level is indexed with one
+ * pass over its tiles, and has no structures.
+ */
+public class LevelIndex {
+    private final int height;
+    private final Connectivity regions;
+    private final CellList floors;
+    private final CellList borders;
+    private final StructureIndex structures;
+    private long hash;
+    private PersistentGrid grid;
+
+    /**
+     * Creates the index of an empty level.
+     *
+     * @param width  the level width.
+     * @param height the level height.
+     */
+    public LevelIndex(int width, int height) {
+        this.height = height;
+        regions = new Connectivity(width, height);
+        floors = new CellList(width * height);
+        borders = new CellList(width * height);
+        structures = new StructureIndex(width, height);
+        hash = 0L;
+    }
+
+    /**
+     * Builds the index of an existing level.
+     *
+     * @param world the game world, a 2-d array.
+     */
+    public static LevelIndex of(Tile[][] world) {
+        LevelIndex index = new LevelIndex(world.length, world[0].length);
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[0].length; y++) {
+                index.record(x, y, TileSet.NOTHING, world[x][y]);
+            }
+        }
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[0].length; y++) {
+                index.updateBorder(world, x, y);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Writes a tile into a level and updates its index.
+     *
+     * @param world the game world, a 2-d array.
+     * @param x     the x-coordinate of the tile.
+     * @param y     the y-coordinate of the tile.
+     * @param tile  the new tile.
+     * @param index the index of the world, or null.
+     */
+    public static void set(Tile[][] world, int x, int y, Tile tile, LevelIndex index) {
+        Tile before = world[x][y];
+        world[x][y] = tile;
+        if (index != null && before != tile) {
+            index.record(x, y, before, tile);
+            index.updateBorders(world, x, y);
+        }
+    }
+
+    /* Records a tile change. Walls and empty tiles never replace
+       walkable tiles, so cells are only ever opened. */
+    private void record(int x, int y, Tile before, Tile after) {
+        hash = Zobrist.update(hash, x, y, before, after);
+        if (grid != null) {
+            grid.set(x, y, after);
+        }
+        if (after != TileSet.WALL && after != TileSet.NOTHING) {
+            regions.open(x, y);
+        }
+        if (after == TileSet.FLOOR) {
+            floors.add(x * height + y);
+        } else if (before == TileSet.FLOOR) {
+            floors.remove(x * height + y);
+        }
+    }
+
+    /* A change to one tile can only change the border status of the
+       tiles around it. */
+    private void updateBorders(Tile[][] world, int x, int y) {
+        for (int i = Math.max(0, x - 1); i <= Math.min(world.length - 1, x + 1); i++) {
+            for (int j = Math.max(0, y - 1); j <= Math.min(height - 1, y + 1); j++) {
+                updateBorder(world, i, j);
+            }
+        }
+    }
+
+    private void updateBorder(Tile[][] world, int x, int y) {
+        if (world[x][y] == TileSet.FLOOR && Game.isBorderTile(world, x, y)) {
+            borders.add(x * height + y);
+        } else {
+            borders.remove(x * height + y);
+        }
+    }
+
+    /**
+     * Returns the connectivity index of the level.
+     */
+    public Connectivity regions() {
+        return regions;
+    }
+
+    /**
+     * Returns the floor tiles of the level as cell numbers
+     * {@code x * height + y}.
+     */
+    public CellList floors() {
+        return floors;
+    }
+
+    /**
+     * Returns the floor tiles with an adjacent empty tile, as cell numbers
+     * {@code x * height + y}.
+     */
+    public CellList borders() {
+        return borders;
+    }
+
+    /**
+     * Returns the rooms and hallways placed in the level.
+     */
+    public StructureIndex structures() {
+        return structures;
+    }
+
+    /**
+     * Returns the x-coordinate of a cell number.
+     *
+     * @param cell a cell number.
+     */
+    public int cellX(int cell) {
+        return cell / height;
+    }
+
+    /**
+     * Returns the y-coordinate of a cell number.
+     *
+     * @param cell a cell number.
+     */
+    public int cellY(int cell) {
+        return cell % height;
+    }
+
+    /**
+     * Returns the Zobrist hash of the level.
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Returns the copy-on-write mirror of the level, creating it from the
+     * level's tiles on first use. From then on every write through
+     * {@link #set} is mirrored into it.
+     *
+     * @param world the game world, a 2-d array.
+     */
+    public PersistentGrid grid(Tile[][] world) {
+        if (grid == null) {
+            grid = new PersistentGrid(world);
+        }
+        return grid;
+    }
+}
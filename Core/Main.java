@@ -2,22 +2,52 @@ package Core;
 
 import TileEngine.Tile;
 
+import java.io.IOException;
+
 /** This is the main entry point for the program. This class simply parses
  *  the command line inputs, and lets the abyss.Core.Game class take over
  *  in either keyboard or input string mode.
+ *  Run with -Dabyss.events=TARGET to record the session as an event
+ *  stream, see EventStream#open for the targets.
+ *  Run with -Dabyss.saves=DIR to save to and load from a SaveStore in DIR
+ *  instead of ./game.ser, in the slot given by -Dabyss.slot (default 0).
+ *  Run with -Dabyss.renderer=tiles to draw the level through TileRenderer
+ *  instead of the tile atlas, or with -Dabyss.renderer=atlas to fail
+ *  rather than fall back when the atlas cannot be drawn.
  */
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        String target = System.getProperty("abyss.events");
+        EventStream events = target != null ? EventStream.open(target) : null;
         if (args.length > 1) {
             System.out.println("Can only have one argument - the input string");
             System.exit(0);
         } else if (args.length == 1) {
             Game game = new Game();
+            game.setEventStream(events);
             Tile[][] worldState = game.playWithInput(args[0]);
+            if (events != null) {
+                events.close();
+            }
             System.out.println(Tile.toString(worldState));
         } else {
             Game game = new Game();
+            game.setEventStream(events);
+            if (events != null) {
+                /* ":q" and closing the window end the program with
+                   System.exit, which would kill the writer with frames
+                   still in its ring. */
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> close(events)));
+            }
             game.playWithKeyboard();
         }
     }
+
+    private static void close(EventStream events) {
+        try {
+            events.close();
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
 }
@@ -0,0 +1,186 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.util.Arrays;
+
+/**
+ * A copy-on-write mirror of a level's tiles that can be snapshotted in
+ * O(1). Tiles are stored as ids in 8x8 chunks under a root table.
+ * Taking a snapshot only marks the current chunks as shared; the next
+ * write to a shared chunk copies that chunk (64 bytes) and, once per
+ * snapshot, the root table. Writes to chunks created since the last
+ * snapshot happen in place. Snapshots therefore cost memory in proportion
+ * to the tiles changed between them, and unchanged chunks are shared by
+ * every snapshot that contains them.
+ * <p>
+ * The grid is owned by a {@link LevelIndex}, which mirrors every tile
+ * write into it, so it always matches its level.
+ */
+public class PersistentGrid {
+    private static final int SHIFT = 3;
+    private static final int SIDE = 1 << SHIFT;
+    private static final int MASK = SIDE - 1;
+
+    private final int width;
+    private final int height;
+    private final int chunksY;
+    private byte[][] root;
+    /* Whether root is referenced by a snapshot. */
+    private boolean rootShared;
+    /* A chunk written since the last snapshot holds the current epoch
+       and may be written in place; all others are shared. */
+    private final int[] ownedEpoch;
+    private int epoch = 1;
+
+    /**
+     * An immutable version of a grid.
+     */
+    public static final class Snapshot {
+        private final PersistentGrid grid;
+        private final byte[][] root;
+
+        private Snapshot(PersistentGrid grid, byte[][] root) {
+            this.grid = grid;
+            this.root = root;
+        }
+
+        /**
+         * Returns the tile at a position in this version.
+         *
+         * @param x the x-coordinate of the tile.
+         * @param y the y-coordinate of the tile.
+         */
+        public Tile get(int x, int y) {
+            return TileIds.tile(root[grid.chunk(x, y)][offset(x, y)]);
+        }
+
+        /**
+         * Copies this version into a new world array.
+         */
+        public Tile[][] toArray() {
+            Tile[][] world = new Tile[grid.width][grid.height];
+            for (int x = 0; x < grid.width; x++) {
+                for (int y = 0; y < grid.height; y++) {
+                    world[x][y] = get(x, y);
+                }
+            }
+            return world;
+        }
+    }
+
+    /**
+     * Creates a grid holding the tiles of a level.
+     *
+     * @param world the game world, a 2-d array.
+     */
+    public PersistentGrid(Tile[][] world) {
+        width = world.length;
+        height = world[0].length;
+        chunksY = (height + MASK) >>> SHIFT;
+        int chunks = ((width + MASK) >>> SHIFT) * chunksY;
+        root = new byte[chunks][SIDE * SIDE];
+        ownedEpoch = new int[chunks];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                root[chunk(x, y)][offset(x, y)] = (byte) TileIds.of(world[x][y]);
+            }
+        }
+        Arrays.fill(ownedEpoch, epoch);
+    }
+
+    /**
+     * Returns the tile at a position.
+     *
+     * @param x the x-coordinate of the tile.
+     * @param y the y-coordinate of the tile.
+     */
+    public Tile get(int x, int y) {
+        return TileIds.tile(root[chunk(x, y)][offset(x, y)]);
+    }
+
+    /**
+     * Writes a tile, copying its chunk first if a snapshot shares it.
+     *
+     * @param x    the x-coordinate of the tile.
+     * @param y    the y-coordinate of the tile.
+     * @param tile the new tile.
+     */
+    public void set(int x, int y, Tile tile) {
+        int c = chunk(x, y);
+        if (ownedEpoch[c] != epoch) {
+            if (rootShared) {
+                root = root.clone();
+                rootShared = false;
+            }
+            root[c] = root[c].clone();
+            ownedEpoch[c] = epoch;
+        }
+        root[c][offset(x, y)] = (byte) TileIds.of(tile);
+    }
+
+    /**
+     * Captures the current tiles in O(1).
+     */
+    public Snapshot snapshot() {
+        rootShared = true;
+        epoch++;
+        return new Snapshot(this, root);
+    }
+
+    /**
+     * Lists the tiles that differ between the grid and a snapshot of it.
+     * Only chunks that are not shared with the snapshot are compared.
+     *
+     * @param snapshot a snapshot taken from this grid.
+     * @param cells    receives the differing cells as {@code x * height + y};
+     *                 must hold width * height cells.
+     * @return the number of differing cells.
+     * @throws IllegalArgumentException if the snapshot is of another grid.
+     */
+    public int diff(Snapshot snapshot, int[] cells) {
+        if (snapshot.grid != this) {
+            throw new IllegalArgumentException("snapshot is of another grid");
+        }
+        int n = 0;
+        for (int c = 0; c < root.length; c++) {
+            if (root[c] == snapshot.root[c]) {
+                continue;
+            }
+            int x0 = (c / chunksY) << SHIFT;
+            int y0 = (c % chunksY) << SHIFT;
+            for (int x = x0; x < Math.min(x0 + SIDE, width); x++) {
+                for (int y = y0; y < Math.min(y0 + SIDE, height); y++) {
+                    if (root[c][offset(x, y)] != snapshot.root[c][offset(x, y)]) {
+                        cells[n++] = x * height + y;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Makes a snapshot the current version again, sharing its chunks.
+     * The grid's level must already hold the snapshot's tiles.
+     *
+     * @param snapshot a snapshot taken from this grid.
+     * @throws IllegalArgumentException if the snapshot is of another grid.
+     */
+    void adopt(Snapshot snapshot) {
+        if (snapshot.grid != this) {
+            throw new IllegalArgumentException("snapshot is of another grid");
+        }
+        root = snapshot.root;
+        rootShared = true;
+        epoch++;
+    }
+
+    private int chunk(int x, int y) {
+        return (x >>> SHIFT) * chunksY + (y >>> SHIFT);
+    }
+
+    private static int offset(int x, int y) {
+        return (x & MASK) << SHIFT | (y & MASK);
+    }
+}
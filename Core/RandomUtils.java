@@ -330,6 +330,31 @@ public class RandomUtils implements Serializable {
         return -1;
     }
 
+    /**
+     * Prepares a discrete distribution for repeated O(1) draws.
+     *
+     * @param probabilities the probability of occurrence of each integer
+     * @return a sampler returning {@code i} with probability {@code probabilities[i]}
+     * @throws IllegalArgumentException under the same conditions as
+     *                                  {@link #discrete(Random, double[])}
+     */
+    public static AliasSampler sampler(double[] probabilities) {
+        return new AliasSampler(probabilities);
+    }
+
+    /**
+     * Prepares a discrete distribution for repeated O(1) draws.
+     *
+     * @param frequencies the frequency of occurrence of each integer
+     * @return a sampler returning {@code i} with probability proportional to
+     * {@code frequencies[i]}
+     * @throws IllegalArgumentException under the same conditions as
+     *                                  {@link #discrete(Random, int[])}
+     */
+    public static AliasSampler sampler(int[] frequencies) {
+        return new AliasSampler(frequencies);
+    }
+
     /**
      * Returns a random real number from an exponential distribution
      * with rate &lambda;.
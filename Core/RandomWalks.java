@@ -0,0 +1,288 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo simulation of random "wasd" walks through the two levels of
+ * a game, for estimating ladder hitting times and coverage. Walkers follow
+ * the rules of {@link Game#movePlayer} and the ladder swap of
+ * {@link Game#playWithInput}: a move is blocked only by a wall, and ending
+ * a move on the ladder, unless the Player just arrived by it, climbs to
+ * the ladder of the other level.
+ * <p>
+ * The levels are reduced to bitmasks of walkable cells with a blocked
+ * border, so a step is a table lookup and a bit test. Each walker draws
+ * its moves from its own SplitMix64 stream, two bits per move, seeded
+ * from a hash of the run seed and the walker's number, so the walkers are
+ * independent and results do not depend on how walkers are split between
+ * threads.
+ */
+public class RandomWalks {
+    private final int width;
+    private final int height;
+    /* Padded grids are (width + 2) x (height + 2), column-major. */
+    private final int paddedHeight;
+    private final int paddedCells;
+    private final long[][] walkable;
+    private final int[] ladder;
+    private final int start;
+    private final boolean startClimbing;
+    /* Cell offsets of the moves 'w', 'a', 's' and 'd'. */
+    private final int[] moves;
+
+    /**
+     * The outcome of a batch of walks.
+     */
+    public static final class Result {
+        private final int binWidth;
+        private final long[] hittingTimes;
+        private final long[][] visits;
+        private long censored;
+        private long steps;
+        private double hittingTimeSum;
+
+        /* Visits are counted by padded cell until the run ends. */
+        private Result(int bins, int binWidth, int cells) {
+            this.binWidth = binWidth;
+            this.hittingTimes = new long[bins];
+            this.visits = new long[2][cells];
+        }
+
+        private Result merge(Result other) {
+            for (int i = 0; i < hittingTimes.length; i++) {
+                hittingTimes[i] += other.hittingTimes[i];
+            }
+            for (int level = 0; level < 2; level++) {
+                for (int c = 0; c < visits[level].length; c++) {
+                    visits[level][c] += other.visits[level][c];
+                }
+            }
+            censored += other.censored;
+            steps += other.steps;
+            hittingTimeSum += other.hittingTimeSum;
+            return this;
+        }
+
+        /**
+         * Returns the histogram of first climb times: bin i counts walkers
+         * that first climbed after between i * binWidth() and
+         * (i + 1) * binWidth() - 1 moves.
+         */
+        public long[] hittingTimes() {
+            return hittingTimes;
+        }
+
+        public int binWidth() {
+            return binWidth;
+        }
+
+        /**
+         * Returns the number of walkers that never climbed.
+         */
+        public long censored() {
+            return censored;
+        }
+
+        /**
+         * Returns the mean first climb time of the walkers that climbed,
+         * or NaN if none did.
+         */
+        public double meanHittingTime() {
+            long climbed = 0;
+            for (long n : hittingTimes) {
+                climbed += n;
+            }
+            return climbed == 0 ? Double.NaN : hittingTimeSum / climbed;
+        }
+
+        /**
+         * Returns the number of moves after which each tile of a level was
+         * occupied, summed over walkers, as cell numbers
+         * {@code x * height + y}.
+         *
+         * @param level 0 for the world the walks start in, 1 for the other.
+         */
+        public long[] visits(int level) {
+            return visits[level];
+        }
+
+        /**
+         * Returns the total number of moves simulated.
+         */
+        public long steps() {
+            return steps;
+        }
+    }
+
+    /**
+     * Captures the levels and positions of a game. Later changes to the
+     * game do not affect the simulation.
+     *
+     * @param g a game with both levels generated.
+     */
+    public RandomWalks(Game g) {
+        Tile[][] world = g.world();
+        width = world.length;
+        height = world[0].length;
+        paddedHeight = height + 2;
+        paddedCells = (width + 2) * paddedHeight;
+        walkable = new long[][]{mask(world), mask(g.overworld())};
+        ladder = new int[]{pad(g.ladderPos()[0], g.ladderPos()[1]),
+                           pad(g.overladderPos()[0], g.overladderPos()[1])};
+        start = pad(g.playerPos()[0], g.playerPos()[1]);
+        startClimbing = g.isClimbing();
+        moves = new int[]{1, -paddedHeight, -1, paddedHeight};
+    }
+
+    /* Marks the cells movePlayer lets the Player enter. */
+    private long[] mask(Tile[][] level) {
+        long[] mask = new long[(paddedCells + 63) >>> 6];
+        for (int x = 0; x < level.length; x++) {
+            for (int y = 0; y < height; y++) {
+                if (TileIds.of(level[x][y]) != TileIds.WALL) {
+                    int c = pad(x, y);
+                    mask[c >>> 6] |= 1L << c;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private int pad(int x, int y) {
+        return (x + 1) * paddedHeight + y + 1;
+    }
+
+    private int unpad(int c) {
+        return (c / paddedHeight - 1) * height + c % paddedHeight - 1;
+    }
+
+    /* Converts visit counts from padded to plain cell numbers. */
+    private long[] unpad(long[] padded) {
+        long[] visits = new long[width * height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                visits[x * height + y] = padded[pad(x, y)];
+            }
+        }
+        return visits;
+    }
+
+    /**
+     * Runs independent walks and collects their hitting times and visits.
+     *
+     * @param walkers the number of walkers.
+     * @param steps   the number of moves each walker makes.
+     * @param seed    the seed of the run.
+     * @param threads the number of threads to simulate on.
+     * @param bins    the number of histogram bins.
+     */
+    public Result run(int walkers, int steps, long seed, int threads, int bins) {
+        if (walkers <= 0 || steps <= 0 || threads <= 0 || bins <= 0) {
+            throw new IllegalArgumentException("walkers, steps, threads and bins must be positive");
+        }
+        int binWidth = (steps + bins - 1) / bins;
+        int tasks = Math.min(walkers, threads * 4);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Result result = pool.submit(() -> IntStream.range(0, tasks).parallel()
+                    .mapToObj(t -> {
+                        Result r = new Result(bins, binWidth, paddedCells);
+                        int from = (int) ((long) walkers * t / tasks);
+                        int to = (int) ((long) walkers * (t + 1) / tasks);
+                        for (int w = from; w < to; w++) {
+                            walk(r, steps, seed, w);
+                        }
+                        return r;
+                    })
+                    .reduce(Result::merge)
+                    .get()).join();
+            result.visits[0] = unpad(result.visits[0]);
+            result.visits[1] = unpad(result.visits[1]);
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /* Simulates one walker, adding its visits and first climb to r. */
+    private void walk(Result r, int steps, long seed, int walker) {
+        /* The stream starts at a hash of the seed and the walker, not at
+           seed + walker * gamma, which would be the previous walker's
+           stream one block later. */
+        long state = mix(seed ^ mix(walker));
+        long bits = 0;
+        int level = 0;
+        int cell = start;
+        boolean climbing = startClimbing;
+        int climbedAt = -1;
+        long[] mask = walkable[0];
+        long[] visits = r.visits[0];
+        for (int i = 0; i < steps; i++) {
+            if ((i & 31) == 0) {
+                state += 0x9E3779B97F4A7C15L;
+                bits = mix(state);
+            }
+            int next = cell + moves[(int) bits & 3];
+            bits >>>= 2;
+            if ((mask[next >>> 6] & 1L << next) != 0) {
+                cell = next;
+                climbing = false;
+            }
+            if (cell == ladder[level] && !climbing) {
+                level ^= 1;
+                cell = ladder[level];
+                climbing = true;
+                mask = walkable[level];
+                visits = r.visits[level];
+                if (climbedAt < 0) {
+                    climbedAt = i + 1;
+                }
+            }
+            visits[cell]++;
+        }
+        if (climbedAt < 0) {
+            r.censored++;
+        } else {
+            r.hittingTimes[Math.min(r.hittingTimes.length - 1, (climbedAt - 1) / r.binWidth)]++;
+            r.hittingTimeSum += climbedAt;
+        }
+        r.steps += steps;
+    }
+
+    /**
+     * Replays a script of moves and returns where it ends, to check the
+     * simulation against {@link Game}.
+     *
+     * @param script a sequence of 'w', 'a', 's' and 'd' moves.
+     * @return {level, x, y}, with level 0 for the starting world.
+     */
+    public int[] trace(CharSequence script) {
+        int level = 0;
+        int cell = start;
+        boolean climbing = startClimbing;
+        for (int i = 0; i < script.length(); i++) {
+            int next = cell + moves["wasd".indexOf(script.charAt(i))];
+            if ((walkable[level][next >>> 6] & 1L << next) != 0) {
+                cell = next;
+                climbing = false;
+            }
+            if (cell == ladder[level] && !climbing) {
+                level ^= 1;
+                cell = ladder[level];
+                climbing = true;
+            }
+        }
+        int c = unpad(cell);
+        return new int[]{level, c / height, c % height};
+    }
+
+    /* The SplitMix64 output function. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
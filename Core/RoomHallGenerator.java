@@ -0,0 +1,255 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.util.Random;
+
+/**
+ * The original generator. It places an initial room, then draws up to
+ * 10,000 room-hallway systems and keeps the ones whose hallway connects
+ * to the existing map, and finally surrounds every floor tile with walls.
+ * Each of these is one step of {@link #start}.
+ * <p>
+ * Most of the 10,000 attempts of a large system count fall on a map that
+ * is already full. With adaptive stopping on, placement ends once the
+ * acceptance rate of the last window of attempts, scaled by how much of
+ * the free area is left since the window began, predicts fewer further
+ * systems than a threshold. The rule only looks at what the seed has
+ * already drawn, so levels stay reproducible, but they differ from the
+ * levels of the plain generator, which is why it is off by default.
+ * <p>
+ * With speculative placement on, which is experimental, systems are
+ * drawn in batches and each batch is checked in parallel by a
+ * {@link SpeculativePlacement}. Levels
+ * are the same as those of the plain generator. A batch is only drawn
+ * when every system in it would be attempted, so with a bound, which may
+ * stop placement after any system, systems are placed one at a time.
+ */
+public class RoomHallGenerator implements WorldGenerator {
+    /* The most floor tiles one system can add: a 9x9 room and a hallway
+       of length 13. */
+    private static final int MAX_SYSTEM_FLOORS = 9 * 9 + 13;
+    public static final int DEFAULT_WINDOW = 2000;
+    public static final double DEFAULT_THRESHOLD = 0.5;
+    public static final int DEFAULT_BATCH = 64;
+
+    /* The number of recent attempts the acceptance rate is taken over,
+       or 0 to make every attempt. */
+    private final int window;
+    private final double threshold;
+    /* The number of systems checked at once, or 0 to check them one at
+       a time. */
+    private final int batch;
+
+    /**
+     * Creates the generator that makes every attempt it draws.
+     */
+    public RoomHallGenerator() {
+        this.window = 0;
+        this.threshold = 0.0;
+        this.batch = 0;
+    }
+
+    /**
+     * Creates a generator that makes every attempt it draws and checks
+     * attempts in parallel batches. Experimental: no speedup over the
+     * plain generator has been shown yet.
+     *
+     * @param batch the number of systems to check at once.
+     * @throws IllegalArgumentException if batch is not positive.
+     */
+    public RoomHallGenerator(int batch) {
+        if (batch <= 0) {
+            throw new IllegalArgumentException("batch must be positive");
+        }
+        this.window = 0;
+        this.threshold = 0.0;
+        this.batch = batch;
+    }
+
+    /**
+     * Creates a generator that stops placing systems early.
+     *
+     * @param window    the number of recent attempts to estimate the
+     *                  acceptance rate over.
+     * @param threshold the expected number of further systems below which
+     *                  placement stops.
+     * @throws IllegalArgumentException if window is not positive or
+     *                                  threshold is negative.
+     */
+    public RoomHallGenerator(int window, double threshold) {
+        if (window <= 0 || threshold < 0) {
+            throw new IllegalArgumentException("window must be positive and threshold non-negative");
+        }
+        this.window = window;
+        this.threshold = threshold;
+        this.batch = 0;
+    }
+
+    @Override
+    public void generate(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics) {
+        generate(world, rand, index, metrics, null);
+    }
+
+    /**
+     * Starts generating a level. The bound is asked after the initial
+     * room, after every system and before the walls whether the systems
+     * still to come could make the level acceptable.
+     */
+    @Override
+    public Steps start(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics,
+                       Bound bound) {
+        return new Run(world, rand, index, metrics, bound, window, threshold, batch);
+    }
+
+    @Override
+    public String name() {
+        if (window != 0) {
+            return "adaptive";
+        }
+        return batch == 0 ? "rooms" : "speculative";
+    }
+
+    /* The state of one generation between steps. */
+    private static final class Run implements Steps {
+        private static final int INIT_MAP = 0;
+        private static final int PLACEMENT = 1;
+        private static final int WALLS = 2;
+        private static final int DONE = 3;
+
+        private final Tile[][] world;
+        private final Random rand;
+        private final LevelIndex index;
+        private final GenMetrics metrics;
+        private final Bound bound;
+        private final double threshold;
+        /* Whether each of the last window attempts was accepted, and the
+           free area after it, by attempt number modulo the window. */
+        private final boolean[] recent;
+        private final SpeculativePlacement speculative;
+        /* The system being placed, reused so placement allocates nothing. */
+        private final int[] system = new int[Game.SYSTEM_FIELDS];
+        private final int[] recentFree;
+        private int recentAccepted;
+        private int phase = INIT_MAP;
+        private int numStructures;
+        private int placed;
+        private boolean completed;
+
+        Run(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics, Bound bound,
+            int window, double threshold, int batch) {
+            this.world = world;
+            this.rand = rand;
+            this.index = index;
+            this.metrics = metrics;
+            this.bound = bound;
+            this.threshold = threshold;
+            this.recent = window > 0 ? new boolean[window] : null;
+            this.recentFree = window > 0 ? new int[window] : null;
+            this.speculative = batch > 0 && bound == null
+                    ? new SpeculativePlacement(world, rand, index, metrics, batch) : null;
+        }
+
+        @Override
+        public boolean step() {
+            long t = metrics != null ? System.nanoTime() : 0L;
+            switch (phase) {
+                case INIT_MAP:
+                    numStructures = RandomUtils.uniform(rand, 10000);
+                    Game.initMap(world, rand, index, metrics);
+                    if (metrics != null) {
+                        metrics.setStructures(numStructures);
+                        GenMetrics.lap(t, metrics::addInitMapNanos);
+                    }
+                    phase = PLACEMENT;
+                    break;
+                case PLACEMENT:
+                    if (placed == numStructures) { // all other rooms are placed
+                        phase = WALLS;
+                        break;
+                    }
+                    int remaining = numStructures - placed;
+                    if (speculative != null) {
+                        int n = Math.min(remaining, speculative.batch());
+                        speculative.place(n);
+                        placed += n;
+                        if (metrics != null) {
+                            GenMetrics.lap(t, metrics::addPlacementNanos);
+                        }
+                        break;
+                    }
+                    if (bound != null && !bound.feasible(index, 2 * remaining,
+                                                         remaining * MAX_SYSTEM_FLOORS)) {
+                        phase = DONE;
+                        break;
+                    }
+                    boolean accepted = Game.placeSystem(world, rand, index, metrics, system);
+                    if (recent != null && saturated(accepted)) {
+                        phase = WALLS;
+                    }
+                    placed++;
+                    if (metrics != null) {
+                        GenMetrics.lap(t, metrics::addPlacementNanos);
+                    }
+                    break;
+                case WALLS:
+                    /* Walls change neither floors nor structures. */
+                    if (bound == null || bound.feasible(index, 0, 0)) {
+                        Game.placeWalls(world, index); // Place walls
+                        completed = true;
+                        if (metrics != null) {
+                            GenMetrics.lap(t, metrics::addWallNanos);
+                        }
+                    }
+                    phase = DONE;
+                    break;
+                default:
+                    break;
+            }
+            return phase != DONE;
+        }
+
+        /* Records the latest attempt and checks whether the attempts left
+           are expected to place fewer systems than the threshold. */
+        private boolean saturated(boolean accepted) {
+            int window = recent.length;
+            int slot = placed % window;
+            int free = index != null ? world.length * world[0].length - index.floors().size() : 0;
+            int freeBefore = recentFree[slot];
+            if (recent[slot]) {
+                recentAccepted--;
+            }
+            recent[slot] = accepted;
+            recentFree[slot] = free;
+            if (accepted) {
+                recentAccepted++;
+            }
+            if (placed + 1 < window) {
+                return false;
+            }
+            double rate = (double) recentAccepted / window;
+            /* Acceptance falls as the free area fills, so a rate measured
+               over the window overestimates the rate from here on. */
+            if (index != null && placed >= window && freeBefore > 0) {
+                rate *= (double) free / freeBefore;
+            }
+            return rate * (numStructures - placed - 1) < threshold;
+        }
+
+        @Override
+        public boolean completed() {
+            return completed;
+        }
+
+        @Override
+        public double progress() {
+            if (phase == DONE) {
+                return 1.0;
+            } else if (phase == INIT_MAP) {
+                return 0.0;
+            }
+            /* Walls take about as long as a hundred systems. */
+            return (placed + 1.0) / (numStructures + 100.0);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package Core;
+
+import java.util.Random;
+
+/**
+ * High-throughput samplers for the continuous and Poisson distributions
+ * in {@link RandomUtils}. Normal and exponential variates come from the
+ * Marsaglia-Tsang ziggurat, which returns without a logarithm or square
+ * root on about 99% of draws. Poisson variates use inversion for small
+ * means and Hoermann's PTRS transformed rejection for means of 10 or
+ * more, so their cost does not grow with the mean. The bulk {@code fill}
+ * methods hoist per-distribution constants out of the loop.
+ * <p>
+ * These produce different streams from the methods in RandomUtils, which
+ * are kept as they are so that seeds stay reproducible.
+ */
+public class Samplers {
+    /* ++++++++++++++++++++++++ ZIGGURAT TABLES ++++++++++++++++++++++++ */
+
+    /* Normal: 128 layers, right tail starting at R_NORMAL. */
+    private static final double R_NORMAL = 3.442619855899;
+    private static final int[] KN = new int[128];
+    private static final double[] WN = new double[128];
+    private static final double[] FN = new double[128];
+
+    /* Exponential: 256 layers, tail starting at R_EXP. */
+    private static final double R_EXP = 7.697117470131487;
+    private static final long[] KE = new long[256];
+    private static final double[] WE = new double[256];
+    private static final double[] FE = new double[256];
+
+    /* Poisson means below this use inversion. */
+    private static final double PTRS_MIN = 10.0;
+    /* log k! for small k; larger k use a Stirling series. */
+    private static final double[] LOG_FACTORIAL = new double[16];
+
+    static {
+        double m1 = 2147483648.0;
+        double vn = 9.91256303526217e-3;
+        double dn = R_NORMAL;
+        double tn = dn;
+        double q = vn / Math.exp(-0.5 * dn * dn);
+        KN[0] = (int) ((dn / q) * m1);
+        KN[1] = 0;
+        WN[0] = q / m1;
+        WN[127] = dn / m1;
+        FN[0] = 1.0;
+        FN[127] = Math.exp(-0.5 * dn * dn);
+        for (int i = 126; i >= 1; i--) {
+            dn = Math.sqrt(-2.0 * Math.log(vn / dn + Math.exp(-0.5 * dn * dn)));
+            KN[i + 1] = (int) ((dn / tn) * m1);
+            tn = dn;
+            FN[i] = Math.exp(-0.5 * dn * dn);
+            WN[i] = dn / m1;
+        }
+
+        double m2 = 4294967296.0;
+        double ve = 3.949659822581572e-3;
+        double de = R_EXP;
+        double te = de;
+        q = ve / Math.exp(-de);
+        KE[0] = (long) ((de / q) * m2);
+        KE[1] = 0;
+        WE[0] = q / m2;
+        WE[255] = de / m2;
+        FE[0] = 1.0;
+        FE[255] = Math.exp(-de);
+        for (int i = 254; i >= 1; i--) {
+            de = -Math.log(ve / de + Math.exp(-de));
+            KE[i + 1] = (long) ((de / te) * m2);
+            te = de;
+            FE[i] = Math.exp(-de);
+            WE[i] = de / m2;
+        }
+
+        for (int k = 1; k < LOG_FACTORIAL.length; k++) {
+            LOG_FACTORIAL[k] = LOG_FACTORIAL[k - 1] + Math.log(k);
+        }
+    }
+
+    /* ++++++++++++++++++++++++ SINGLE DRAWS +++++++++++++++++++++++++++ */
+
+    /**
+     * Returns a random real number from a standard Gaussian distribution.
+     *
+     * @param random a random number generator.
+     */
+    public static double gaussian(Random random) {
+        /* The high half picks the point, the low bits pick the layer, so
+           the two are independent. */
+        long bits = random.nextLong();
+        int hz = (int) (bits >> 32);
+        int iz = (int) bits & 127;
+        if (Math.abs((long) hz) < KN[iz]) {
+            return hz * WN[iz];
+        }
+        while (true) {
+            double x = hz * WN[iz];
+            if (iz == 0) { // sample the tail beyond R_NORMAL
+                double y;
+                do {
+                    x = -Math.log(open(random)) / R_NORMAL;
+                    y = -Math.log(open(random));
+                } while (y + y < x * x);
+                return hz > 0 ? R_NORMAL + x : -R_NORMAL - x;
+            }
+            if (FN[iz] + random.nextDouble() * (FN[iz - 1] - FN[iz]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+            bits = random.nextLong();
+            hz = (int) (bits >> 32);
+            iz = (int) bits & 127;
+            if (Math.abs((long) hz) < KN[iz]) {
+                return hz * WN[iz];
+            }
+        }
+    }
+
+    /**
+     * Returns a random real number from a Gaussian distribution with mean
+     * &mu; and standard deviation &sigma;.
+     *
+     * @param random a random number generator.
+     * @param mu     the mean
+     * @param sigma  the standard deviation
+     */
+    public static double gaussian(Random random, double mu, double sigma) {
+        return mu + sigma * gaussian(random);
+    }
+
+    /**
+     * Returns a random real number from an exponential distribution with
+     * rate 1.
+     *
+     * @param random a random number generator.
+     */
+    public static double exp(Random random) {
+        long bits = random.nextLong();
+        long jz = bits >>> 32;
+        int iz = (int) bits & 255;
+        if (jz < KE[iz]) {
+            return jz * WE[iz];
+        }
+        while (true) {
+            if (iz == 0) { // the tail is an exponential shifted by R_EXP
+                return R_EXP - Math.log(open(random));
+            }
+            double x = jz * WE[iz];
+            if (FE[iz] + random.nextDouble() * (FE[iz - 1] - FE[iz]) < Math.exp(-x)) {
+                return x;
+            }
+            bits = random.nextLong();
+            jz = bits >>> 32;
+            iz = (int) bits & 255;
+            if (jz < KE[iz]) {
+                return jz * WE[iz];
+            }
+        }
+    }
+
+    /**
+     * Returns a random real number from an exponential distribution with
+     * rate &lambda;.
+     *
+     * @param random a random number generator.
+     * @param lambda the rate of the exponential distribution
+     * @throws IllegalArgumentException unless {@code lambda > 0.0}
+     */
+    public static double exp(Random random, double lambda) {
+        if (!(lambda > 0.0)) {
+            throw new IllegalArgumentException("lambda must be positive: " + lambda);
+        }
+        return exp(random) / lambda;
+    }
+
+    /**
+     * Returns a random integer from a geometric distribution with success
+     * probability <em>p</em>, counting trials up to and including the
+     * first success.
+     *
+     * @param random a random number generator.
+     * @param p      the parameter of the geometric distribution
+     * @throws IllegalArgumentException unless {@code p > 0.0} and {@code p <= 1.0}
+     */
+    public static int geometric(Random random, double p) {
+        return geometricScaled(random, geometricScale(p));
+    }
+
+    /**
+     * Returns a random real number from a Pareto distribution with shape
+     * parameter &alpha;.
+     *
+     * @param random a random number generator.
+     * @param alpha  shape parameter
+     * @throws IllegalArgumentException unless {@code alpha > 0.0}
+     */
+    public static double pareto(Random random, double alpha) {
+        if (!(alpha > 0.0)) {
+            throw new IllegalArgumentException("alpha must be positive: " + alpha);
+        }
+        return Math.exp(exp(random) / alpha) - 1.0;
+    }
+
+    /**
+     * Returns a random integer from a Poisson distribution with mean &lambda;.
+     *
+     * @param random a random number generator.
+     * @param lambda the mean of the Poisson distribution
+     * @throws IllegalArgumentException unless {@code lambda > 0.0} and not infinite
+     */
+    public static int poisson(Random random, double lambda) {
+        checkPoisson(lambda);
+        if (lambda < PTRS_MIN) {
+            return poissonInversion(random, lambda, Math.exp(-lambda));
+        }
+        return new Ptrs(lambda).sample(random);
+    }
+
+    /* +++++++++++++++++++++++++ BULK DRAWS ++++++++++++++++++++++++++++ */
+
+    /**
+     * Fills an array with draws from a Gaussian distribution.
+     *
+     * @param random a random number generator.
+     * @param out    the array to fill.
+     * @param mu     the mean
+     * @param sigma  the standard deviation
+     */
+    public static void fillGaussian(Random random, double[] out, double mu, double sigma) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = mu + sigma * gaussian(random);
+        }
+    }
+
+    /**
+     * Fills an array with draws from an exponential distribution.
+     *
+     * @param random a random number generator.
+     * @param out    the array to fill.
+     * @param lambda the rate of the exponential distribution
+     * @throws IllegalArgumentException unless {@code lambda > 0.0}
+     */
+    public static void fillExp(Random random, double[] out, double lambda) {
+        if (!(lambda > 0.0)) {
+            throw new IllegalArgumentException("lambda must be positive: " + lambda);
+        }
+        double scale = 1.0 / lambda;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = exp(random) * scale;
+        }
+    }
+
+    /**
+     * Fills an array with draws from a geometric distribution.
+     *
+     * @param random a random number generator.
+     * @param out    the array to fill.
+     * @param p      the parameter of the geometric distribution
+     * @throws IllegalArgumentException unless {@code p > 0.0} and {@code p <= 1.0}
+     */
+    public static void fillGeometric(Random random, int[] out, double p) {
+        double scale = geometricScale(p);
+        for (int i = 0; i < out.length; i++) {
+            out[i] = geometricScaled(random, scale);
+        }
+    }
+
+    /**
+     * Fills an array with draws from a Poisson distribution.
+     *
+     * @param random a random number generator.
+     * @param out    the array to fill.
+     * @param lambda the mean of the Poisson distribution
+     * @throws IllegalArgumentException unless {@code lambda > 0.0} and not infinite
+     */
+    public static void fillPoisson(Random random, int[] out, double lambda) {
+        checkPoisson(lambda);
+        if (lambda < PTRS_MIN) {
+            double expLambda = Math.exp(-lambda);
+            for (int i = 0; i < out.length; i++) {
+                out[i] = poissonInversion(random, lambda, expLambda);
+            }
+            return;
+        }
+        Ptrs ptrs = new Ptrs(lambda);
+        for (int i = 0; i < out.length; i++) {
+            out[i] = ptrs.sample(random);
+        }
+    }
+
+    /* +++++++++++++++++++++++++++ HELPERS +++++++++++++++++++++++++++++ */
+
+    /* A uniform real number in (0, 1], safe to take the logarithm of. */
+    private static double open(Random random) {
+        return 1.0 - random.nextDouble();
+    }
+
+    /* Geometric draws are ceil(E / -log(1 - p)) for a unit exponential E;
+       returns 1 / -log(1 - p), or 0 when p is 1. */
+    private static double geometricScale(double p) {
+        if (!(p > 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("probability p must be in (0.0, 1.0]: " + p);
+        }
+        return p == 1.0 ? 0.0 : -1.0 / Math.log1p(-p);
+    }
+
+    private static int geometricScaled(Random random, double scale) {
+        double k = Math.ceil(exp(random) * scale);
+        if (k < 1.0) {
+            return 1;
+        }
+        return k >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) k;
+    }
+
+    private static void checkPoisson(double lambda) {
+        if (!(lambda > 0.0)) {
+            throw new IllegalArgumentException("lambda must be positive: " + lambda);
+        }
+        if (Double.isInfinite(lambda)) {
+            throw new IllegalArgumentException("lambda must not be infinite: " + lambda);
+        }
+    }
+
+    /* Sequential search of the CDF from 0; expected lambda + 1 steps. */
+    private static int poissonInversion(Random random, double lambda, double expLambda) {
+        double u = random.nextDouble();
+        double p = expLambda;
+        double cdf = p;
+        int k = 0;
+        while (u > cdf) {
+            k++;
+            p *= lambda / k;
+            cdf += p;
+            if (p == 0.0) { // roundoff left u above the total mass
+                return poissonInversion(random, lambda, expLambda);
+            }
+        }
+        return k;
+    }
+
+    static double logFactorial(int k) {
+        if (k < LOG_FACTORIAL.length) {
+            return LOG_FACTORIAL[k];
+        }
+        double x = k + 1.0;
+        double x2 = x * x;
+        return (x - 0.5) * Math.log(x) - x + 0.9189385332046728
+                + (1.0 / 12.0 - (1.0 / 360.0 - 1.0 / (1260.0 * x2)) / x2) / x;
+    }
+
+    /* Hoermann's PTRS constants for one mean. */
+    private static final class Ptrs {
+        private final double lambda;
+        private final double logLambda;
+        private final double a;
+        private final double b;
+        private final double logInvAlpha;
+        private final double vr;
+
+        Ptrs(double lambda) {
+            this.lambda = lambda;
+            this.logLambda = Math.log(lambda);
+            this.b = 0.931 + 2.53 * Math.sqrt(lambda);
+            this.a = -0.059 + 0.02483 * b;
+            this.logInvAlpha = Math.log(1.1239 + 1.1328 / (b - 3.4));
+            this.vr = 0.9277 - 3.6224 / (b - 2.0);
+        }
+
+        int sample(Random random) {
+            while (true) {
+                double u = random.nextDouble() - 0.5;
+                double v = random.nextDouble();
+                double us = 0.5 - Math.abs(u);
+                double k = Math.floor((2.0 * a / us + b) * u + lambda + 0.43);
+                if (us >= 0.07 && v <= vr) {
+                    return (int) k;
+                }
+                if (k < 0.0 || (us < 0.013 && v > us) || k > Integer.MAX_VALUE) {
+                    continue;
+                }
+                if (Math.log(v) + logInvAlpha - Math.log(a / (us * us) + b)
+                        <= -lambda + k * logLambda - logFactorial((int) k)) {
+                    return (int) k;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,773 @@
+package Core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * A log-structured store of saved games, keyed by a slot number such as a
+ * session id. Saves are appended to the active segment file of a
+ * directory and never overwritten in place, and an in-memory hash index
+ * maps each slot to its latest record, so a save is one sequential write
+ * and a load is one positional read.
+ * <p>
+ * Writes are made durable in batches: the segment is forced to disk after
+ * every few saves and on {@link #sync} and {@link #close}, instead of
+ * after every save. When superseded records take up more space than live
+ * ones, the active segment is sealed and a background thread copies the
+ * live records of the sealed segments into one compacted segment while
+ * saves go on in a new one.
+ * <p>
+ * Opening a store replays its segments to rebuild the index. A record
+ * torn by a crash ends its segment. A compacted segment names the oldest
+ * segment it replaces, so segments left behind by a crash during
+ * compaction are recognised and removed. One process at a time may open a
+ * directory.
+ * <p>
+ * Segment files are named segment-N.log and start with a header:
+ * <pre>
+ * int magic, int version, long oldest segment replaced
+ * </pre>
+ * followed by records:
+ * <pre>
+ * int length (-1 for a deleted slot), int crc, long slot, byte[length] data
+ * </pre>
+ */
+public class SaveStore implements AutoCloseable {
+    public static final int DEFAULT_SYNC_EVERY = 64;
+    /* Stores smaller than this are never compacted. */
+    public static final long MIN_COMPACT_BYTES = 1L << 20;
+
+    private static final int MAGIC = 0x41425953; // "ABYS"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER = 16;
+    private static final int RECORD_HEADER = 16;
+    private static final int DELETED = -1;
+    /* Segments are scanned and compacted through buffers of this size. */
+    private static final int IO_BUFFER = 1 << 20;
+    /* Positions are a segment number above a 40-bit offset. */
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    /* The slot number that marks an empty index entry. */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final Path dir;
+    private final int syncEvery;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+    private final ExecutorService compactor;
+    private FileChannel active;
+    private int activeNumber;
+    private long activeSize;
+    private int unsynced;
+    private long liveBytes;
+    private long deadBytes;
+    private Future<?> compaction;
+    private boolean closed;
+
+    /* Open addressing index: slot, position and record length. */
+    private long[] keys;
+    private long[] positions;
+    private int[] lengths;
+    private int size;
+
+    private SaveStore(Path dir, int syncEvery) throws IOException {
+        this.dir = dir;
+        this.syncEvery = syncEvery;
+        Files.createDirectories(dir);
+        lockChannel = FileChannel.open(dir.resolve("LOCK"), StandardOpenOption.CREATE,
+                                       StandardOpenOption.WRITE);
+        FileLock held;
+        try {
+            held = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            /* This JVM already has the store open. */
+            held = null;
+        }
+        if (held == null) {
+            lockChannel.close();
+            throw new IOException(dir + " is open in another process");
+        }
+        lock = held;
+        compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "save-store-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        clearIndex(1024);
+    }
+
+    /**
+     * Opens the store in a directory, creating it if needed.
+     *
+     * @param dir the directory of the store.
+     * @throws IOException if the store cannot be read or is locked.
+     */
+    public static SaveStore open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SYNC_EVERY);
+    }
+
+    /**
+     * Opens the store in a directory, creating it if needed.
+     *
+     * @param dir       the directory of the store.
+     * @param syncEvery the number of writes between forcing the active
+     *                  segment to disk.
+     * @throws IOException if the store cannot be read or is locked.
+     * @throws IllegalArgumentException if syncEvery is not positive.
+     */
+    public static SaveStore open(Path dir, int syncEvery) throws IOException {
+        if (syncEvery <= 0) {
+            throw new IllegalArgumentException("syncEvery must be positive");
+        }
+        SaveStore store = new SaveStore(dir, syncEvery);
+        try {
+            store.recover();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /* ++++++++++++++++++++++++ PUBLIC FUNCTIONS +++++++++++++++++++++++++ */
+
+    /**
+     * Saves data to a slot, replacing what it held.
+     *
+     * @param slot a slot number other than Long.MIN_VALUE.
+     * @param data the data to save.
+     * @throws IOException if the write fails.
+     */
+    public synchronized void put(long slot, byte[] data) throws IOException {
+        checkSlot(slot);
+        append(slot, data, data.length);
+        maybeCompact();
+    }
+
+    /**
+     * Returns the data last saved to a slot, or null if there is none.
+     *
+     * @param slot a slot number.
+     * @throws IOException if the read fails or the record is corrupt.
+     */
+    public synchronized byte[] get(long slot) throws IOException {
+        checkOpen();
+        int i = find(slot);
+        if (keys[i] == EMPTY) {
+            return null;
+        }
+        long pos = positions[i];
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER + lengths[i]);
+        readFully(segments.get(segment(pos)), buf, offset(pos));
+        buf.flip();
+        int length = buf.getInt();
+        int crc = buf.getInt();
+        buf.getLong();
+        if (length != lengths[i] || crc != crc(buf.array(), 0, length)) {
+            throw new IOException("corrupt record for slot " + slot);
+        }
+        byte[] data = new byte[length];
+        buf.get(data);
+        return data;
+    }
+
+    /**
+     * Deletes the data of a slot.
+     *
+     * @param slot a slot number.
+     * @return whether the slot held data.
+     * @throws IOException if the write fails.
+     */
+    public synchronized boolean delete(long slot) throws IOException {
+        checkSlot(slot);
+        if (keys[find(slot)] == EMPTY) {
+            return false;
+        }
+        append(slot, null, DELETED);
+        maybeCompact();
+        return true;
+    }
+
+    /**
+     * Returns whether a slot holds data.
+     *
+     * @param slot a slot number.
+     */
+    public synchronized boolean contains(long slot) {
+        return keys[find(slot)] != EMPTY;
+    }
+
+    /**
+     * Returns the number of slots that hold data.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bytes of the segments taken by superseded records.
+     */
+    public synchronized long deadBytes() {
+        return deadBytes;
+    }
+
+    /**
+     * Returns the bytes of the segments taken by live records.
+     */
+    public synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Forces every write so far to disk.
+     *
+     * @throws IOException if the sync fails.
+     */
+    public synchronized void sync() throws IOException {
+        checkOpen();
+        if (unsynced > 0) {
+            active.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Compacts the store now and waits for the compaction to finish. If
+     * one is already running, waits for that one instead.
+     *
+     * @throws IOException if compaction fails.
+     */
+    public void compact() throws IOException {
+        Future<?> f;
+        synchronized (this) {
+            checkOpen();
+            startCompaction();
+            f = compaction;
+        }
+        await(f);
+    }
+
+    /**
+     * Waits for a running compaction, syncs and closes the store.
+     *
+     * @throws IOException if the last sync or compaction fails.
+     */
+    @Override
+    public void close() throws IOException {
+        Future<?> f;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            f = compaction;
+        }
+        try {
+            if (f != null) {
+                await(f);
+            }
+        } finally {
+            synchronized (this) {
+                closed = true;
+                compactor.shutdown();
+                try {
+                    if (active != null && unsynced > 0) {
+                        active.force(false);
+                    }
+                } finally {
+                    for (FileChannel c : segments.values()) {
+                        c.close();
+                    }
+                    segments.clear();
+                    lock.release();
+                    lockChannel.close();
+                }
+            }
+        }
+    }
+
+    /* ++++++++++++++++++++++++ WRITE FUNCTIONS ++++++++++++++++++++++++++ */
+
+    /* Appends a record to the active segment and points the index at it. */
+    private void append(long slot, byte[] data, int length) throws IOException {
+        checkOpen();
+        int payload = Math.max(length, 0);
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER + payload);
+        buf.putInt(length);
+        buf.putInt(0);
+        buf.putLong(slot);
+        if (data != null) {
+            buf.put(data, 0, payload);
+        }
+        buf.putInt(4, crc(buf.array(), 0, length));
+        buf.flip();
+        long pos = position(activeNumber, activeSize);
+        writeFully(active, buf, activeSize);
+        activeSize += RECORD_HEADER + payload;
+        apply(slot, pos, length);
+        if (++unsynced >= syncEvery) {
+            active.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /* Records that a slot's latest record is at a position, or that the
+       slot was deleted, and counts the bytes the change leaves dead. */
+    private void apply(long slot, long pos, int length) {
+        int i = find(slot);
+        if (keys[i] != EMPTY) {
+            long old = RECORD_HEADER + (long) lengths[i];
+            liveBytes -= old;
+            deadBytes += old;
+        }
+        if (length == DELETED) {
+            deadBytes += RECORD_HEADER;
+            if (keys[i] != EMPTY) {
+                remove(i);
+            }
+            return;
+        }
+        liveBytes += RECORD_HEADER + (long) length;
+        if (keys[i] == EMPTY) {
+            keys[i] = slot;
+            size++;
+        }
+        positions[i] = pos;
+        lengths[i] = length;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /* Starts a new active segment, sealing the current one. */
+    private void roll() throws IOException {
+        if (active != null && unsynced > 0) {
+            active.force(false);
+            unsynced = 0;
+        }
+        activeNumber = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        active = createSegment(segmentPath(activeNumber), activeNumber);
+        activeSize = SEGMENT_HEADER;
+        segments.put(activeNumber, active);
+    }
+
+    private FileChannel createSegment(Path path, int oldest) throws IOException {
+        FileChannel c = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                                         StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(oldest).flip();
+        writeFully(c, header, 0);
+        return c;
+    }
+
+    /* +++++++++++++++++++++ COMPACTION FUNCTIONS ++++++++++++++++++++++++ */
+
+    private void maybeCompact() throws IOException {
+        if (deadBytes > liveBytes && liveBytes + deadBytes >= MIN_COMPACT_BYTES) {
+            startCompaction();
+        }
+    }
+
+    /* Seals the active segment and hands the sealed segments to the
+       compactor, unless a compaction is already running. */
+    private void startCompaction() throws IOException {
+        if (compaction != null && !compaction.isDone()) {
+            return;
+        }
+        if (compaction != null) {
+            Future<?> last = compaction;
+            compaction = null;
+            await(last); // report a failure of the last one
+        }
+        roll();
+        List<Integer> sealed = new ArrayList<>(segments.headMap(activeNumber).keySet());
+        compaction = compactor.submit(() -> {
+            compactSegments(sealed);
+            return null;
+        });
+    }
+
+    /* Copies the live records of sealed segments into one segment that
+       takes the number of the newest of them. Saves continue meanwhile;
+       records they supersede during the copy are dropped at the end. */
+    private void compactSegments(List<Integer> sealed) throws IOException {
+        int target = sealed.get(sealed.size() - 1);
+        Path temp = dir.resolve("segment-" + target + ".compact");
+        Files.deleteIfExists(temp);
+        /* Slots copied, with their old and new positions. */
+        List<long[]> moved = new ArrayList<>();
+        long copiedBytes = SEGMENT_HEADER;
+        ByteBuffer pending = ByteBuffer.allocate(IO_BUFFER);
+        long pendingAt = SEGMENT_HEADER;
+        try (FileChannel out = createSegment(temp, sealed.get(0))) {
+            for (int number : sealed) {
+                FileChannel in;
+                synchronized (this) {
+                    in = segments.get(number);
+                }
+                SegmentReader r = new SegmentReader(in);
+                while (r.next()) {
+                    long pos = position(number, r.offset);
+                    boolean live;
+                    synchronized (this) {
+                        int i = find(r.slot);
+                        live = r.length != DELETED && keys[i] != EMPTY && positions[i] == pos;
+                    }
+                    if (!live) {
+                        continue;
+                    }
+                    if (pending.remaining() < r.size) {
+                        pending.flip();
+                        writeFully(out, pending, pendingAt);
+                        pendingAt = copiedBytes;
+                        pending = ByteBuffer.allocate(Math.max(IO_BUFFER, r.size));
+                    }
+                    pending.put(r.buf.array(), r.start(), r.size);
+                    moved.add(new long[]{r.slot, pos, position(target, copiedBytes)});
+                    copiedBytes += r.size;
+                }
+            }
+            pending.flip();
+            writeFully(out, pending, pendingAt);
+            out.force(true);
+        }
+        synchronized (this) {
+            for (int number : sealed) {
+                segments.remove(number).close();
+            }
+            /* Once the compacted segment is in place, it names the
+               segments it replaces, so a crash before they are deleted
+               loses nothing. */
+            Files.move(temp, segmentPath(target), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            segments.put(target, FileChannel.open(segmentPath(target), StandardOpenOption.READ));
+            for (long[] m : moved) {
+                int i = find(m[0]);
+                if (keys[i] != EMPTY && positions[i] == m[1]) {
+                    positions[i] = m[2];
+                }
+            }
+            for (int number : sealed) {
+                if (number != target) {
+                    Files.deleteIfExists(segmentPath(number));
+                }
+            }
+            /* Copies superseded during the copy are dead from the start. */
+            liveBytes = totalLive();
+            deadBytes = copiedBytes - SEGMENT_HEADER + activeSize - SEGMENT_HEADER - liveBytes;
+        }
+    }
+
+    /* ++++++++++++++++++++++++ RECOVERY FUNCTIONS +++++++++++++++++++++++ */
+
+    /* Removes what an interrupted compaction left and replays the
+       segments in order. */
+    private void recover() throws IOException {
+        TreeMap<Integer, Long> found = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".compact")) {
+                    Files.delete(p);
+                } else if (name.startsWith("segment-") && name.endsWith(".log")) {
+                    int number = Integer.parseInt(name.substring(8, name.length() - 4));
+                    Long oldest = oldestReplaced(p);
+                    if (oldest != null) {
+                        found.put(number, oldest);
+                    }
+                }
+            }
+        }
+        for (int number : new ArrayList<>(found.keySet())) {
+            Long oldest = found.get(number);
+            if (oldest == null) {
+                continue;
+            }
+            for (int replaced : new ArrayList<>(found.subMap((int) (long) oldest, number).keySet())) {
+                Files.delete(segmentPath(replaced));
+                found.remove(replaced);
+            }
+        }
+        for (int number : found.keySet()) {
+            FileChannel c = FileChannel.open(segmentPath(number), StandardOpenOption.READ,
+                                             StandardOpenOption.WRITE);
+            segments.put(number, c);
+            replay(number, c);
+        }
+        /* Writing goes on at the end of the last segment. */
+        if (!found.isEmpty()) {
+            activeNumber = found.lastKey();
+            active = segments.get(activeNumber);
+            activeSize = active.size();
+        } else {
+            roll();
+        }
+    }
+
+    /* Reads the header of a segment; a segment too short to have one was
+       torn while being created and is removed. */
+    private Long oldestReplaced(Path p) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+        boolean torn;
+        try (FileChannel c = FileChannel.open(p, StandardOpenOption.READ)) {
+            torn = c.size() < SEGMENT_HEADER;
+            if (!torn) {
+                readFully(c, header, 0);
+            }
+        }
+        if (torn) {
+            Files.delete(p);
+            return null;
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException(p + " is not a save store segment");
+        }
+        return header.getLong(8);
+    }
+
+    /* Replays the records of a segment into the index, cutting it at the
+       first record that is incomplete or fails its checksum. */
+    private void replay(int number, FileChannel c) throws IOException {
+        SegmentReader r = new SegmentReader(c);
+        while (r.next()) {
+            apply(r.slot, position(number, r.offset), r.length);
+        }
+        if (r.offset < c.size()) {
+            c.truncate(r.offset);
+            c.force(true);
+        }
+    }
+
+    /* Reads the records of a segment in order through a large buffer. */
+    private static final class SegmentReader {
+        private final FileChannel c;
+        private final long end;
+        private ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER);
+        /* The segment offset of the first byte in buf. */
+        private long bufAt = SEGMENT_HEADER;
+        /* The offset, length, slot and total size of the current record. */
+        private long offset = SEGMENT_HEADER;
+        private int length;
+        private long slot;
+        private int size;
+
+        SegmentReader(FileChannel c) throws IOException {
+            this.c = c;
+            this.end = c.size();
+            buf.limit(0);
+        }
+
+        /* Moves to the next record. Returns false at the end of the
+           segment or at a record that is incomplete or fails its
+           checksum, with offset where the valid records end. */
+        boolean next() throws IOException {
+            offset += size;
+            size = 0;
+            if (!fill(RECORD_HEADER)) {
+                return false;
+            }
+            int l = buf.getInt(start());
+            if (l < DELETED || !fill(RECORD_HEADER + Math.max(l, 0))) {
+                return false;
+            }
+            int at = start();
+            if (buf.getInt(at + 4) != crc(buf.array(), at, l)) {
+                return false;
+            }
+            length = l;
+            slot = buf.getLong(at + 8);
+            size = RECORD_HEADER + Math.max(l, 0);
+            return true;
+        }
+
+        /* The index of the current record in buf. */
+        int start() {
+            return (int) (offset - bufAt);
+        }
+
+        /* Makes n bytes from the current record on available in buf. */
+        private boolean fill(int n) throws IOException {
+            if (offset + n > end) {
+                return false;
+            } else if (offset - bufAt + n <= buf.limit()) {
+                return true;
+            }
+            if (buf.capacity() < n) {
+                buf = ByteBuffer.allocate(n);
+            }
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), end - offset));
+            readFully(c, buf, offset);
+            bufAt = offset;
+            return true;
+        }
+    }
+
+    /* +++++++++++++++++++++++++ INDEX FUNCTIONS +++++++++++++++++++++++++ */
+
+    private void clearIndex(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        positions = new long[capacity];
+        lengths = new int[capacity];
+        size = 0;
+    }
+
+    /* Returns the entry of a slot, or the empty entry where it would go. */
+    private int find(long slot) {
+        int mask = keys.length - 1;
+        int i = hash(slot) & mask;
+        while (keys[i] != EMPTY && keys[i] != slot) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /* Removes an entry, shifting back the entries probed past it. */
+    private void remove(int i) {
+        int mask = keys.length - 1;
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != EMPTY) {
+            int home = hash(keys[j]) & mask;
+            /* Entry j may fill the hole if its home is not between the
+               hole and j, cyclically. */
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                positions[hole] = positions[j];
+                lengths[hole] = lengths[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldPositions = positions;
+        int[] oldLengths = lengths;
+        clearIndex(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = find(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                positions[j] = oldPositions[i];
+                lengths[j] = oldLengths[i];
+                size++;
+            }
+        }
+    }
+
+    private static int hash(long slot) {
+        long h = slot * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private long totalLive() {
+        long live = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                live += RECORD_HEADER + (long) lengths[i];
+            }
+        }
+        return live;
+    }
+
+    /* ++++++++++++++++++++++++ HELPER FUNCTIONS +++++++++++++++++++++++++ */
+
+    private static long position(int segment, long offset) {
+        return (long) segment << OFFSET_BITS | offset;
+    }
+
+    private static int segment(long pos) {
+        return (int) (pos >>> OFFSET_BITS);
+    }
+
+    private static long offset(long pos) {
+        return pos & OFFSET_MASK;
+    }
+
+    private Path segmentPath(int number) {
+        return dir.resolve("segment-" + number + ".log");
+    }
+
+    /* The checksum of a record: its length, slot and data. */
+    private static int crc(byte[] array, int start, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(array, start, 4);
+        crc.update(array, start + 8, RECORD_HEADER - 8 + Math.max(length, 0));
+        return (int) crc.getValue();
+    }
+
+    /* Makes renames in the directory durable, where the platform allows. */
+    private void syncDirectory() {
+        try (FileChannel c = FileChannel.open(dir, StandardOpenOption.READ)) {
+            c.force(true);
+        } catch (IOException e) {
+            // not supported on every platform; the rename is still atomic
+        }
+    }
+
+    private static void readFully(FileChannel c, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = c.read(buf, pos);
+            if (n < 0) {
+                throw new IOException("unexpected end of segment");
+            }
+            pos += n;
+        }
+    }
+
+    private static void writeFully(FileChannel c, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            pos += c.write(buf, pos);
+        }
+    }
+
+    private void checkSlot(long slot) {
+        if (slot == EMPTY) {
+            throw new IllegalArgumentException("slot " + EMPTY + " is reserved");
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("save store is closed");
+        }
+    }
+
+    private static void await(Future<?> f) throws IOException {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while compacting", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("compaction failed", cause);
+        }
+    }
+}
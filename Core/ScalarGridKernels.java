@@ -0,0 +1,83 @@
+package Core;
+
+/**
+ * Grid kernels written as plain loops, used when the Vector API is not
+ * available and for the tails of vectorised loops.
+ */
+final class ScalarGridKernels extends GridKernels {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void fill(byte[] grid, byte id) {
+        fill(grid, id, 0);
+    }
+
+    @Override
+    public void replace(byte[] grid, byte from, byte to) {
+        replace(grid, from, to, 0);
+    }
+
+    @Override
+    public int count(byte[] grid, byte id) {
+        return count(grid, id, 0);
+    }
+
+    @Override
+    public void mask(byte[] grid, byte id, long[] bits) {
+        mask(grid, id, bits, 0);
+    }
+
+    @Override
+    public int diff(byte[] a, byte[] b, int[] cells) {
+        checkDiff(a, b, cells);
+        return diff(a, b, cells, 0, 0);
+    }
+
+    /* The loops below start at a given cell so the vector kernels can
+       finish their tails with them. */
+
+    static void fill(byte[] grid, byte id, int from) {
+        for (int i = from; i < grid.length; i++) {
+            grid[i] = id;
+        }
+    }
+
+    static void replace(byte[] grid, byte from, byte to, int start) {
+        for (int i = start; i < grid.length; i++) {
+            if (grid[i] == from) {
+                grid[i] = to;
+            }
+        }
+    }
+
+    static int count(byte[] grid, byte id, int from) {
+        int n = 0;
+        for (int i = from; i < grid.length; i++) {
+            if (grid[i] == id) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    static void mask(byte[] grid, byte id, long[] bits, int from) {
+        for (int i = from; i < grid.length; i++) {
+            if (grid[i] == id) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    static int diff(byte[] a, byte[] b, int[] cells, int from, int n) {
+        for (int i = from; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                cells[n++] = i;
+            }
+        }
+        return n;
+    }
+}
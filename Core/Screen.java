@@ -0,0 +1,290 @@
+package Core;
+
+import TileEngine.TileRenderer;
+import TileEngine.Tile;
+import TileEngine.TileSet;
+import edu.princeton.cs.introcs.StdDraw;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.lang.reflect.Field;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import static Core.Game.HEIGHT;
+import static Core.Game.WIDTH;
+
+/**
+ * The interactive front end of a game. All drawing and keyboard input
+ * goes through StdDraw here, so that string mode, which only needs
+ * {@link Game}, never loads StdDraw, the tile renderer or AWT fonts.
+ */
+public class Screen {
+    /* Time spent generating per frame while a new game loads. */
+    private static final long LOADING_BUDGET_NANOS = 15_000_000L;
+    /* The side of a tile in pixels, as TileRenderer draws it. */
+    private static final int TILE_SIZE = 16;
+    /* Rows of HUD above and below the level. */
+    private static final int TOP_ROWS = 2;
+    private static final int BOTTOM_ROWS = 3;
+    /* How the level is drawn: "atlas" blits a frame from the atlas onto
+       StdDraw's off-screen surface, "tiles" draws tile by tile through
+       TileRenderer. StdDraw has no call that draws an image held in
+       memory, so the surface is a private field reached by reflection.
+       By default the atlas is used when that works, and the screen falls
+       back to TileRenderer, saying why on stderr, when it does not. */
+    private static final String RENDERER = System.getProperty("abyss.renderer", "");
+    /* StdDraw's off-screen surface, or null once drawing through TileRenderer. */
+    private static Field offscreen = offscreenField();
+
+    private final Game game;
+    private final TileRenderer ter = new TileRenderer();
+    private final AtlasRenderer atlas = new AtlasRenderer(WIDTH, HEIGHT, TILE_SIZE);
+    private GenerationTask loading;
+
+    /**
+     * Creates a screen for a game.
+     *
+     * @param game the game to draw and control.
+     */
+    public Screen(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Renders the main menu.
+     */
+    public void drawMenu(String input) {
+        int midWidth = WIDTH / 2;
+        int midHeight = HEIGHT / 2 + 3;
+        int topHeight = 3 * HEIGHT / 4 + 3;
+
+        StdDraw.clear(Color.black);
+
+        // Draw the actual text
+        Font defaultFont = new Font("Sans Serif", Font.PLAIN, 16);
+        Font bigFont = new Font("Monaco", Font.BOLD, 30);
+        StdDraw.setFont(bigFont);
+        StdDraw.setPenColor(Color.white);
+        StdDraw.text(midWidth, topHeight, "Abyss");
+        if (input.length() == 0) {
+        StdDraw.text(midWidth, midHeight, "New Game (N)");
+        StdDraw.text(midWidth, midHeight - 2, "Load (L)");
+        StdDraw.text(midWidth, midHeight - 4, "Quit (:Q)");
+        } else {
+            StdDraw.text(midWidth, midHeight, input);
+        }
+
+        StdDraw.show();
+        StdDraw.setFont(defaultFont);
+    }
+
+    /**
+     * Renders the progress of the game being generated.
+     *
+     * @param progress the fraction of the work done, from 0 to 1.
+     */
+    public void drawLoading(double progress) {
+        int midWidth = WIDTH / 2;
+        int midHeight = HEIGHT / 2 + 3;
+        int barWidth = WIDTH / 2;
+
+        StdDraw.clear(Color.black);
+        StdDraw.setPenColor(Color.white);
+        StdDraw.text(midWidth, midHeight + 2, "Generating seed " + loading.seed()
+                + "... " + (int) (progress * 100) + "%");
+        StdDraw.rectangle(midWidth, midHeight, barWidth / 2.0, 0.5);
+        StdDraw.filledRectangle(midWidth - barWidth / 2.0 + barWidth * progress / 2.0,
+                                midHeight, barWidth * progress / 2.0, 0.5);
+        StdDraw.text(midWidth, midHeight - 2, "New seed (N)   Quit (:Q)");
+        StdDraw.show();
+    }
+
+    /**
+     * Renders the current level and the heads up display (HUD).
+     */
+    public void drawFrame() {
+        int x = (int) StdDraw.mouseX();
+        int y = (int) StdDraw.mouseY() - 3;
+        Tile[][] frame = game.visibleWorld();
+        String substrate = "";
+        if (x < WIDTH && y < HEIGHT) {
+            if (0 < x && 0 < y) {
+                substrate = frame[x][y].description();
+                int structure = game.structures().at(x, y);
+                if (structure >= 0 && frame[x][y] != TileSet.NOTHING) {
+                    substrate += " - " + game.structures().describe(structure);
+                }
+            }
+        }
+
+        String timeStamp = new SimpleDateFormat("MMM dd, yyyy HH:mm:ss").format(new Date());
+
+        Graphics2D canvas = offscreen();
+        if (canvas != null) {
+            /* The image covers the level only; the HUD bands around it
+               are cleared to black as TileRenderer clears the canvas. */
+            int canvasWidth = WIDTH * TILE_SIZE;
+            canvas.setColor(Color.black);
+            canvas.fillRect(0, 0, canvasWidth, TOP_ROWS * TILE_SIZE);
+            canvas.fillRect(0, (TOP_ROWS + HEIGHT) * TILE_SIZE, canvasWidth,
+                            BOTTOM_ROWS * TILE_SIZE);
+            canvas.drawImage(atlas.renderFrame(frame), 0, TOP_ROWS * TILE_SIZE, null);
+        } else {
+            ter.renderFrame(frame);
+        }
+
+        StdDraw.setPenColor(Color.white);
+        StdDraw.textLeft(1, HEIGHT + 4, "Seed:" + Integer.toString(game.seed()));
+        StdDraw.text(WIDTH / 2, HEIGHT + 4, substrate);
+        StdDraw.textRight(WIDTH - 1, HEIGHT + 4, timeStamp);
+        StdDraw.line(0, HEIGHT + 3, WIDTH, HEIGHT + 3);
+
+        StdDraw.textLeft(1,  1,  "Movement:   Up (W)   Left (A)   Down (S)   Right (D)");
+        StdDraw.text(WIDTH / 2 + 10,  1,  "Fog (F)");
+        StdDraw.textRight(WIDTH - 1,  1,  "Quit (:Q)");
+        StdDraw.line(0, 2, WIDTH, 2);
+        StdDraw.show();
+    }
+
+    /* Finds StdDraw's off-screen surface, unless TileRenderer is chosen. */
+    private static Field offscreenField() {
+        if (RENDERER.equals("tiles")) {
+            return null;
+        }
+        if (!RENDERER.isEmpty() && !RENDERER.equals("atlas")) {
+            throw new IllegalArgumentException("unknown abyss.renderer: " + RENDERER);
+        }
+        try {
+            Field f = StdDraw.class.getDeclaredField("offscreen");
+            if (!Graphics2D.class.isAssignableFrom(f.getType())) {
+                return fallBack("StdDraw.offscreen is a " + f.getType().getName());
+            }
+            f.setAccessible(true);
+            return f;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return fallBack(e.toString());
+        }
+    }
+
+    /* Switches to TileRenderer for good, or fails if the atlas was asked for. */
+    private static Field fallBack(String reason) {
+        if (RENDERER.equals("atlas")) {
+            throw new IllegalStateException("cannot draw with the atlas: " + reason);
+        }
+        System.err.println("drawing with TileRenderer, the atlas cannot reach StdDraw's "
+                           + "canvas: " + reason);
+        offscreen = null;
+        return null;
+    }
+
+    /* Returns the surface StdDraw is drawing the next frame on, or null
+       when drawing through TileRenderer. It is looked up every frame as
+       resizing the canvas replaces it. */
+    private static Graphics2D offscreen() {
+        if (offscreen == null) {
+            return null;
+        }
+        try {
+            Graphics2D canvas = (Graphics2D) offscreen.get(null);
+            if (canvas == null) {
+                fallBack("StdDraw.offscreen is null");
+            }
+            return canvas;
+        } catch (IllegalAccessException e) {
+            fallBack(e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Plays the game from the main menu with keyboard input.
+     */
+    public void playWithKeyboard() {
+        // Show menu
+        ter.initialize(WIDTH, HEIGHT + TOP_ROWS + BOTTOM_ROWS, 0, BOTTOM_ROWS);
+//        StdDraw.disableDoubleBuffering();
+        drawMenu("");
+        StdDraw.show();
+        boolean play = false;
+        // Player input
+        while (true) {
+            if (loading != null) {
+                /* Generate a slice of the new game per frame. */
+                if (loading.runFor(LOADING_BUDGET_NANOS)) {
+                    loading.finish();
+                    loading = null;
+                    play = true;
+                } else {
+                    drawLoading(loading.progress());
+                }
+            }
+            if (play) {
+                game.climbLadder();
+                drawFrame();
+            }
+            if (!StdDraw.hasNextKeyTyped()) {
+                continue;
+            }
+            char next = StdDraw.nextKeyTyped();
+            if (next == 'n') { // Handle new game command "n"
+                if (loading != null) { // a new seed replaces the one loading
+                    loading.cancel();
+                    loading = null;
+                }
+                // Handle seed argument int
+                String rawSeed = "";
+                drawMenu("Type an integer seed. Press S to confirm.");
+                while (next != 's') {
+                    if (!StdDraw.hasNextKeyTyped()) {
+                        continue;
+                    }
+                    next = StdDraw.nextKeyTyped();
+                    rawSeed += String.valueOf(next);
+                    drawMenu(rawSeed);
+                }
+                loading = new GenerationTask(game, (int) Long.parseLong(
+                        rawSeed.substring(0, rawSeed.length() - 1)));
+                play = false;
+                /* Concurrent game commands */
+            } else if (next == ':') { // Handle quit and save command ":q"
+                while (!StdDraw.hasNextKeyTyped()) {
+                    continue;
+                }
+                if (StdDraw.nextKeyTyped() == 'q') {
+                    /* End and save game */
+                    StdDraw.clear(StdDraw.BLACK);
+                    StdDraw.show();
+                    Game.quitGame(game);
+                    System.exit(0);
+                    break;
+                }
+            } else if (loading != null) {
+                continue; // only a new seed or quitting while loading
+            } else if (next == 'l') { // Handle load command "l"
+                /* Load existing game */
+                game.resumeSavedGame();
+                drawFrame();
+                play = true;
+            } else if (next == 'f') { // Handle fog of war toggle "f"
+                game.setFogOfWar(!game.isFogOfWar());
+                if (game.world() != null) { // at the menu, only the setting changes
+                    drawFrame();
+                }
+            } else if (next == 'u') { // Handle undo command "u"
+                if (game.undo()) {
+                    drawFrame();
+                }
+                // Handle movement commands "wasd"
+            } else if (Arrays.asList('w', 'a', 's', 'd').contains(next)) {
+                /* Move character, keeping a checkpoint only if it moved */
+                Game.Snapshot before = game.snapshot();
+                Game.movePlayer(game, game.world(), next);
+                game.checkpoint(before);
+                drawFrame();
+            }
+        }
+    }
+}
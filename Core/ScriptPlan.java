@@ -0,0 +1,142 @@
+package Core;
+
+/**
+ * The commands of a {@link Game#playWithInput} script, parsed the way
+ * playWithInput parses them, with the generation each new game needs.
+ * Generation is the only expensive command, and a script often throws its
+ * result away: a new game that another "n" replaces before any move needs
+ * no generation at all, and the world of a new game that "l" loads over
+ * before any move is never seen. The overworld of a new game is left to
+ * {@link Game} to generate when it is first looked at.
+ * <p>
+ * Commands after the first ":q" are never run and are not planned.
+ * Characters that are not commands only re-check the ladder, which the
+ * command before them has already done, so they are dropped.
+ */
+final class ScriptPlan {
+    /** A new game that a later command replaces before it is looked at. */
+    static final int SKIP = 0;
+    /** A new game whose world a later "l" replaces before it is looked at. */
+    static final int OVERWORLD = 1;
+    /** A new game that is played. */
+    static final int FULL = 2;
+
+    private final char[] commands;
+    private final int[] seeds;
+    private final int[] work;
+    private int size;
+
+    private ScriptPlan(int capacity) {
+        commands = new char[capacity];
+        seeds = new int[capacity];
+        work = new int[capacity];
+    }
+
+    /**
+     * Plans a script.
+     *
+     * @param input a playWithInput script.
+     * @return the plan, or null if running the script as typed would throw,
+     * for example for an "n" without an "s" or a ":" at the end.
+     */
+    static ScriptPlan of(String input) {
+        String[] inputArray = input.split("");
+        ScriptPlan plan = new ScriptPlan(inputArray.length);
+        /* Seeds accumulate over the script, as in playWithInput. */
+        StringBuilder rawSeed = new StringBuilder();
+        int i = 0;
+        while (i < inputArray.length) {
+            String c = inputArray[i];
+            if (c.equals("n")) {
+                i++;
+                while (i < inputArray.length && !inputArray[i].equals("s")) {
+                    rawSeed.append(inputArray[i]);
+                    i++;
+                }
+                if (i == inputArray.length) {
+                    return null;
+                }
+                try {
+                    plan.add('n', (int) Long.parseLong(rawSeed.toString()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            } else if (c.equals(":")) {
+                if (i + 1 == inputArray.length) {
+                    return null;
+                } else if (inputArray[i + 1].equals("q")) {
+                    plan.add('q', 0);
+                    break;
+                }
+            } else if (c.equals("l")) {
+                plan.add('l', 0);
+            } else if (c.equals("w") || c.equals("a") || c.equals("s") || c.equals("d")) {
+                plan.add(c.charAt(0), 0);
+            }
+            i++;
+        }
+        plan.planGeneration();
+        return plan;
+    }
+
+    private void add(char command, int seed) {
+        commands[size] = command;
+        seeds[size] = seed;
+        size++;
+    }
+
+    /* A new game is looked at by a move, a save or the end of the script.
+       Right after a new game the Player never stands on the ladder, so
+       nothing else happens before the next command. */
+    private void planGeneration() {
+        for (int i = 0; i < size; i++) {
+            if (commands[i] != 'n') {
+                continue;
+            }
+            char next = i + 1 < size ? commands[i + 1] : 0;
+            if (next == 'n') {
+                work[i] = SKIP;
+            } else if (next == 'l') {
+                work[i] = OVERWORLD;
+            } else {
+                work[i] = FULL;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of commands to run.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns a command: 'n' for a new game, 'l' for a load, 'q' for a
+     * save and quit, or the direction of a move.
+     *
+     * @param i the number of the command.
+     */
+    char command(int i) {
+        return commands[i];
+    }
+
+    /**
+     * Returns the seed of a new game command.
+     *
+     * @param i the number of the command.
+     */
+    int seed(int i) {
+        return seeds[i];
+    }
+
+    /**
+     * Returns the generation a new game command needs: {@link #SKIP},
+     * {@link #OVERWORLD} or {@link #FULL}.
+     *
+     * @param i the number of the command.
+     */
+    int work(int i) {
+        return work[i];
+    }
+}
@@ -0,0 +1,372 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Searches a range of seeds for games that meet a set of criteria, on
+ * all cores. A seed stands for the game {@link Game#startGame} builds
+ * from it: the world from the seed and the overworld from {@code seed ^ 2}.
+ * <p>
+ * Criteria are checked as early as they can be decided. The structure
+ * and floor minimums are checked during generation, through a
+ * {@link WorldGenerator.Bound}, and the world is abandoned as soon as the
+ * systems still to be placed could not reach them. The ladder distance
+ * and the connectivity of the world are checked before the overworld is
+ * generated, and the overworld is only generated when a criterion needs it.
+ * <p>
+ * Matches are handed to a consumer as they are found, so they arrive in
+ * no particular order.
+ * <p>
+ * Usage: {@code java Core.SeedSearch [from] [count] [key=value...]} with
+ * keys floors, structures, distance, connected (true or false), generator,
+ * limit and threads.
+ */
+public class SeedSearch {
+    /* Seeds are claimed by workers in blocks of this many. */
+    private static final int BLOCK = 64;
+
+    private int minFloors;
+    private int minStructures;
+    private int minLadderDistance;
+    private boolean connected;
+    private String generator = "rooms";
+    private PrintStream progress;
+
+    private final LongAdder tried = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private final LongAdder found = new LongAdder();
+    private long nanos;
+
+    /**
+     * A seed that meets the criteria, with the measures it was judged by.
+     */
+    public static final class Match {
+        private final int seed;
+        private final int floors;
+        private final int structures;
+        private final int ladderDistance;
+
+        private Match(int seed, int floors, int structures, int ladderDistance) {
+            this.seed = seed;
+            this.floors = floors;
+            this.structures = structures;
+            this.ladderDistance = ladderDistance;
+        }
+
+        public int seed() {
+            return seed;
+        }
+
+        /**
+         * Returns the number of walkable tiles in the world.
+         */
+        public int floors() {
+            return floors;
+        }
+
+        /**
+         * Returns the number of rooms and hallways in the world.
+         */
+        public int structures() {
+            return structures;
+        }
+
+        /**
+         * Returns the length of the shortest walk from the Player to the
+         * ladder, or -1 if it was not measured.
+         */
+        public int ladderDistance() {
+            return ladderDistance;
+        }
+
+        /**
+         * Returns the match as a CSV record: seed, floors, structures and
+         * ladder distance.
+         */
+        @Override
+        public String toString() {
+            return seed + "," + floors + "," + structures + "," + ladderDistance;
+        }
+    }
+
+    /* ++++++++++++++++++++++++++ CRITERIA +++++++++++++++++++++++++++++ */
+
+    /**
+     * Requires at least n walkable tiles in the world.
+     */
+    public SeedSearch minFloors(int n) {
+        minFloors = n;
+        return this;
+    }
+
+    /**
+     * Requires at least n rooms and hallways in the world.
+     */
+    public SeedSearch minStructures(int n) {
+        minStructures = n;
+        return this;
+    }
+
+    /**
+     * Requires the shortest walk from the Player to the ladder to take at
+     * least n steps.
+     */
+    public SeedSearch minLadderDistance(int n) {
+        minLadderDistance = n;
+        return this;
+    }
+
+    /**
+     * Requires the world and the overworld to each be one connected region.
+     */
+    public SeedSearch connected(boolean connected) {
+        this.connected = connected;
+        return this;
+    }
+
+    /**
+     * Generates both levels with the generator of a name.
+     *
+     * @param name a name accepted by {@link WorldGenerator#forName}.
+     */
+    public SeedSearch generator(String name) {
+        WorldGenerator.forName(name); // fail here rather than on a worker
+        generator = name;
+        return this;
+    }
+
+    /**
+     * Prints progress once a second while searching.
+     *
+     * @param out where to print, or null for no progress.
+     */
+    public SeedSearch progress(PrintStream out) {
+        progress = out;
+        return this;
+    }
+
+    /* +++++++++++++++++++++++++++ SEARCH ++++++++++++++++++++++++++++++ */
+
+    /**
+     * Searches seeds from, from + 1, ... and returns when count seeds have
+     * been tried or limit matches found.
+     *
+     * @param from    the first seed.
+     * @param count   the number of seeds to try.
+     * @param limit   the number of matches to stop at.
+     * @param threads the number of worker threads.
+     * @param matches receives each match as it is found, one at a time.
+     * @return the number of matches found.
+     */
+    public long run(int from, long count, long limit, int threads, Consumer<Match> matches) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        tried.reset();
+        pruned.reset();
+        found.reset();
+        AtomicLong next = new AtomicLong();
+        Object lock = new Object();
+        Runnable worker = () -> {
+            Searcher searcher = new Searcher();
+            long block;
+            while (found.sum() < limit && (block = next.getAndAdd(BLOCK)) < count) {
+                long end = Math.min(count, block + BLOCK);
+                for (long i = block; i < end && found.sum() < limit; i++) {
+                    Match m = searcher.test((int) (from + i));
+                    if (m != null) {
+                        synchronized (lock) {
+                            if (found.sum() < limit) {
+                                found.increment();
+                                matches.accept(m);
+                            }
+                        }
+                    }
+                }
+            }
+        };
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(worker, "seed-search-" + t);
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            try {
+                while (w.isAlive()) {
+                    w.join(1000);
+                    if (progress != null && w.isAlive()) {
+                        nanos = System.nanoTime() - start;
+                        progress.printf("%d seeds, %d pruned, %d matches, %.0f seeds/s%n",
+                                        tried(), pruned(), matches(), seedsPerSecond());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        nanos = System.nanoTime() - start;
+        return found.sum();
+    }
+
+    /**
+     * Returns the number of seeds tried by the last search.
+     */
+    public long tried() {
+        return tried.sum();
+    }
+
+    /**
+     * Returns the number of seeds the last search abandoned during
+     * generation of a level.
+     */
+    public long pruned() {
+        return pruned.sum();
+    }
+
+    /**
+     * Returns the number of matches of the last search.
+     */
+    public long matches() {
+        return found.sum();
+    }
+
+    /**
+     * Returns the throughput of the last search.
+     */
+    public double seedsPerSecond() {
+        return nanos == 0 ? 0.0 : tried() / (nanos / 1e9);
+    }
+
+    /* The state of one worker: its generators and search scratch. */
+    private final class Searcher {
+        private final WorldGenerator worldGenerator = WorldGenerator.forName(generator);
+        private final WorldGenerator overworldGenerator = WorldGenerator.forName(generator);
+        private final int[] queue = new int[Game.WIDTH * Game.HEIGHT];
+        private final int[] distance = new int[Game.WIDTH * Game.HEIGHT];
+        private final WorldGenerator.Bound bound = (index, maxStructures, maxFloors) ->
+                index.structures().size() + maxStructures >= minStructures
+                        && index.floors().size() + maxFloors >= minFloors;
+
+        /* Returns the match for a seed, or null if the seed fails. */
+        Match test(int seed) {
+            tried.increment();
+            Game g = new Game();
+            if (!Game.genRandomWorld(g, seed, worldGenerator, bound)) {
+                pruned.increment();
+                return null;
+            }
+            LevelIndex index = g.index(g.world());
+            int floors = index.floors().size() + 2; // the Player and ladder stand on floor
+            int structures = index.structures().size();
+            if (connected && index.regions().regionCount() != 1) {
+                return null;
+            }
+            int ladderDistance = -1;
+            if (minLadderDistance > 0) {
+                ladderDistance = walk(g.world(), g.playerPos(), g.ladderPos());
+                if (ladderDistance < minLadderDistance) {
+                    return null;
+                }
+            }
+            if (connected) {
+                if (!Game.genRandomOverworld(g, seed ^ 2, overworldGenerator, null)) {
+                    return null;
+                }
+                if (g.index(g.overworld()).regions().regionCount() != 1) {
+                    return null;
+                }
+            }
+            return new Match(seed, floors, structures, ladderDistance);
+        }
+
+        /* Breadth-first search for the length of the shortest walk between
+           two tiles, or -1 if there is none. */
+        private int walk(Tile[][] world, int[] from, int[] to) {
+            int height = world[0].length;
+            Arrays.fill(distance, -1);
+            int target = to[0] * height + to[1];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = from[0] * height + from[1];
+            distance[queue[0]] = 0;
+            while (head < tail) {
+                int cell = queue[head++];
+                if (cell == target) {
+                    return distance[cell];
+                }
+                int x = cell / height;
+                int y = cell % height;
+                for (int k = 0; k < 4; k++) {
+                    int nx = x + (k == 0 ? 1 : k == 1 ? -1 : 0);
+                    int ny = y + (k == 2 ? 1 : k == 3 ? -1 : 0);
+                    if (nx < 0 || ny < 0 || nx >= world.length || ny >= height) {
+                        continue;
+                    }
+                    int n = nx * height + ny;
+                    if (distance[n] < 0 && world[nx][ny] != TileSet.WALL
+                            && world[nx][ny] != TileSet.NOTHING) {
+                        distance[n] = distance[cell] + 1;
+                        queue[tail++] = n;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    public static void main(String[] args) {
+        int from = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        long count = args.length > 1 ? Long.parseLong(args[1]) : 10_000;
+        long limit = Long.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        SeedSearch search = new SeedSearch().progress(System.err);
+        for (int i = 2; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("expected key=value: " + args[i]);
+            }
+            String key = args[i].substring(0, eq);
+            String value = args[i].substring(eq + 1);
+            switch (key) {
+                case "floors":
+                    search.minFloors(Integer.parseInt(value));
+                    break;
+                case "structures":
+                    search.minStructures(Integer.parseInt(value));
+                    break;
+                case "distance":
+                    search.minLadderDistance(Integer.parseInt(value));
+                    break;
+                case "connected":
+                    search.connected(Boolean.parseBoolean(value));
+                    break;
+                case "generator":
+                    search.generator(value);
+                    break;
+                case "limit":
+                    limit = Long.parseLong(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + key);
+            }
+        }
+
+        System.out.println("seed,floors,structures,ladderDistance");
+        search.run(from, count, limit, threads, System.out::println);
+        System.err.printf("%d seeds, %d pruned, %d matches, %.0f seeds/s%n",
+                          search.tried(), search.pruned(), search.matches(),
+                          search.seedsPerSecond());
+    }
+}
@@ -0,0 +1,257 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * A level shared by many actors, players and NPCs alike, that move
+ * concurrently. The terrain never changes; actors live in an occupancy
+ * grid where each cell holds the id of the actor standing on it. A move
+ * claims the target cell with a compare-and-set and only then releases
+ * the cell it left, so no two actors can share a cell and there is no
+ * global lock: threads only contend when their actors step onto the same
+ * cell at the same moment.
+ * <p>
+ * Movement is organized in ticks. {@link #tick(Controller)} asks every
+ * actor's controller for a move, applies the moves in parallel, and then
+ * publishes a {@link Snapshot} of all positions. Snapshots are immutable,
+ * so a renderer can draw the last one while the next tick runs. When two
+ * actors race for a cell, whichever claims it first moves and the other
+ * stays put; the winner depends on scheduling.
+ */
+public class SharedWorld {
+    private final Tile[][] terrain;
+    private final int width;
+    private final int height;
+    /* 1 + id of the actor on each cell, or 0 for a free cell. */
+    private final AtomicIntegerArray occupant;
+    private final int[] cells;
+    private final Tile[] avatars;
+    private int actors;
+    private long ticks;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Decides the moves of actors.
+     */
+    public interface Controller {
+        /**
+         * Returns the move of an actor this tick: 'w', 'a', 's' or 'd' as
+         * in {@link Game#movePlayer}, or any other character to stay put.
+         * Called concurrently for different actors.
+         *
+         * @param actor the id of the actor.
+         * @param world the shared world.
+         */
+        char next(int actor, SharedWorld world);
+    }
+
+    /**
+     * An immutable record of every actor's position after a tick.
+     */
+    public static final class Snapshot {
+        private final SharedWorld world;
+        private final long tick;
+        private final int[] cells;
+
+        private Snapshot(SharedWorld world, long tick, int[] cells) {
+            this.world = world;
+            this.tick = tick;
+            this.cells = cells;
+        }
+
+        /**
+         * Returns the number of ticks completed when the snapshot was taken.
+         */
+        public long tick() {
+            return tick;
+        }
+
+        /**
+         * Returns the number of actors.
+         */
+        public int actors() {
+            return cells.length;
+        }
+
+        /**
+         * Returns the position of an actor as {x, y}.
+         *
+         * @param actor the id of the actor.
+         */
+        public int[] position(int actor) {
+            return new int[]{cells[actor] / world.height, cells[actor] % world.height};
+        }
+
+        /**
+         * Draws the terrain with every actor's avatar on top.
+         */
+        public Tile[][] render() {
+            Tile[][] frame = new Tile[world.width][];
+            for (int x = 0; x < world.width; x++) {
+                frame[x] = world.terrain[x].clone();
+            }
+            for (int a = 0; a < cells.length; a++) {
+                frame[cells[a] / world.height][cells[a] % world.height] = world.avatars[a];
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * Creates a shared world over a level. Player tiles in the level are
+     * treated as floor; actors are added with {@link #spawn}. Tiles are
+     * read by {@link TileIds}, so a level of a loaded game, whose tiles
+     * may be copies, gives the same terrain.
+     *
+     * @param level    the game world, a 2-d array.
+     * @param capacity the most actors the world can hold.
+     */
+    public SharedWorld(Tile[][] level, int capacity) {
+        width = level.length;
+        height = level[0].length;
+        terrain = new Tile[width][];
+        for (int x = 0; x < width; x++) {
+            terrain[x] = level[x].clone();
+            /* The terrain holds the TileSet instances, so isWalkable can
+               compare by identity. */
+            for (int y = 0; y < height; y++) {
+                int id = TileIds.of(terrain[x][y]);
+                if (id == TileIds.PLAYER) {
+                    terrain[x][y] = TileSet.FLOOR;
+                } else if (id != TileIds.UNKNOWN) {
+                    terrain[x][y] = TileIds.tile(id);
+                }
+            }
+        }
+        occupant = new AtomicIntegerArray(width * height);
+        cells = new int[capacity];
+        avatars = new Tile[capacity];
+        snapshot = new Snapshot(this, 0, new int[0]);
+    }
+
+    /**
+     * Adds an actor on a tile. It appears in snapshots from the next tick.
+     *
+     * @param x      the x-coordinate of the tile.
+     * @param y      the y-coordinate of the tile.
+     * @param avatar the tile the actor is drawn as.
+     * @return the id of the actor, or -1 if the tile is blocked or taken.
+     * @throws IllegalStateException if the world is full.
+     */
+    public synchronized int spawn(int x, int y, Tile avatar) {
+        if (actors == cells.length) {
+            throw new IllegalStateException("shared world is full: " + actors + " actors");
+        }
+        int cell = x * height + y;
+        if (!isWalkable(x, y) || !occupant.compareAndSet(cell, 0, actors + 1)) {
+            return -1;
+        }
+        cells[actors] = cell;
+        avatars[actors] = avatar;
+        return actors++;
+    }
+
+    /**
+     * Adds an actor on a random free tile. It appears in snapshots from
+     * the next tick.
+     *
+     * @param rand   a random number generator.
+     * @param avatar the tile the actor is drawn as.
+     * @return the id of the actor, or -1 if no free tile was found.
+     * @throws IllegalStateException if the world is full.
+     */
+    public synchronized int spawn(Random rand, Tile avatar) {
+        for (int attempt = 0; attempt < width * height; attempt++) {
+            int actor = spawn(RandomUtils.uniform(rand, width),
+                              RandomUtils.uniform(rand, height), avatar);
+            if (actor >= 0) {
+                return actor;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of actors.
+     */
+    public synchronized int actors() {
+        return actors;
+    }
+
+    /**
+     * Checks if actors can stand on a tile of the terrain.
+     *
+     * @param x the x-coordinate of the tile.
+     * @param y the y-coordinate of the tile.
+     */
+    public boolean isWalkable(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return terrain[x][y] != TileSet.WALL && terrain[x][y] != TileSet.NOTHING;
+    }
+
+    /**
+     * Moves an actor to an adjacent tile unless it is blocked or taken.
+     * Safe to call concurrently for different actors, but each actor must
+     * be moved by one thread at a time.
+     *
+     * @param actor the id of the actor.
+     * @param k     a directional input character.
+     * @return whether the actor moved.
+     */
+    public boolean move(int actor, char k) {
+        int from = cells[actor];
+        int x = from / height;
+        int y = from % height;
+        if (k == 'w') { // move up
+            y++;
+        } else if (k == 'a') { // move left
+            x--;
+        } else if (k == 's') { // move down
+            y--;
+        } else if (k == 'd') { // move right
+            x++;
+        } else {
+            return false;
+        }
+        if (!isWalkable(x, y)) {
+            return false;
+        }
+        int to = x * height + y;
+        if (!occupant.compareAndSet(to, 0, actor + 1)) {
+            return false; // another actor holds the cell
+        }
+        occupant.set(from, 0);
+        cells[actor] = to;
+        return true;
+    }
+
+    /**
+     * Applies one move per actor in parallel and publishes a snapshot of
+     * the result.
+     *
+     * @param controller decides each actor's move.
+     * @return the new snapshot.
+     */
+    public synchronized Snapshot tick(Controller controller) {
+        IntStream.range(0, actors).parallel()
+                .forEach(a -> move(a, controller.next(a, this)));
+        ticks++;
+        snapshot = new Snapshot(this, ticks, Arrays.copyOf(cells, actors));
+        return snapshot;
+    }
+
+    /**
+     * Returns the snapshot published by the last tick.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,183 @@
+package Core;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Bulk shuffles and permutations that draw random bits in batches. Each
+ * bounded integer uses Lemire's nearly-divisionless method, a multiply
+ * and a shift with a division only on the rare rejection path, and the
+ * Fisher-Yates shuffles take several consecutive swap indices from a
+ * single 64-bit word, following Brackett-Rozinsky and Lemire's batched
+ * ranged generation. A shuffle of a few thousand elements takes one
+ * {@code nextLong()} per five elements instead of one synchronized draw
+ * per element.
+ * <p>
+ * Any {@link RandomGenerator} can be used, including a seeded
+ * {@link java.util.Random}; generators without internal synchronization
+ * such as {@link java.util.SplittableRandom} are faster still. Results
+ * differ from the shuffles in {@link RandomUtils}, which are kept as they
+ * are so that seeds stay reproducible.
+ */
+public class Shuffles {
+    /* Most indices drawn from one 64-bit word. */
+    private static final int MAX_BATCH = 6;
+
+    /**
+     * Returns a random integer uniformly in [0, n).
+     *
+     * @param rng a random number generator.
+     * @param n   number of possible integers
+     * @throws IllegalArgumentException if {@code n <= 0}
+     */
+    public static int bounded(RandomGenerator rng, int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("argument must be positive: " + n);
+        }
+        long m = (rng.nextInt() & 0xffffffffL) * n;
+        long low = m & 0xffffffffL;
+        if (low < n) {
+            long threshold = (1L << 32) % n;
+            while (low < threshold) {
+                m = (rng.nextInt() & 0xffffffffL) * n;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    /**
+     * Rearranges the elements of an array in uniformly random order.
+     *
+     * @param rng a random number generator.
+     * @param a   the array to shuffle
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static void shuffle(RandomGenerator rng, int[] a) {
+        validateNotNull(a);
+        int[] idx = new int[MAX_BATCH];
+        int i = a.length;
+        while (i > 1) {
+            int k = draw(rng, i, idx);
+            for (int j = 0; j < k; j++, i--) {
+                int r = idx[j];
+                int temp = a[i - 1];
+                a[i - 1] = a[r];
+                a[r] = temp;
+            }
+        }
+    }
+
+    /**
+     * Rearranges the elements of an array in uniformly random order.
+     *
+     * @param rng a random number generator.
+     * @param a   the array to shuffle
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static void shuffle(RandomGenerator rng, long[] a) {
+        validateNotNull(a);
+        int[] idx = new int[MAX_BATCH];
+        int i = a.length;
+        while (i > 1) {
+            int k = draw(rng, i, idx);
+            for (int j = 0; j < k; j++, i--) {
+                int r = idx[j];
+                long temp = a[i - 1];
+                a[i - 1] = a[r];
+                a[r] = temp;
+            }
+        }
+    }
+
+    /**
+     * Rearranges the elements of an array in uniformly random order.
+     *
+     * @param rng a random number generator.
+     * @param a   the array to shuffle
+     * @throws IllegalArgumentException if {@code a} is {@code null}
+     */
+    public static void shuffle(RandomGenerator rng, Object[] a) {
+        validateNotNull(a);
+        int[] idx = new int[MAX_BATCH];
+        int i = a.length;
+        while (i > 1) {
+            int k = draw(rng, i, idx);
+            for (int j = 0; j < k; j++, i--) {
+                int r = idx[j];
+                Object temp = a[i - 1];
+                a[i - 1] = a[r];
+                a[r] = temp;
+            }
+        }
+    }
+
+    /**
+     * Returns a uniformly random permutation of <em>n</em> elements.
+     *
+     * @param rng a random number generator.
+     * @param n   number of elements
+     * @return an array of length {@code n} that is a uniformly random permutation
+     * of {@code 0}, {@code 1}, ..., {@code n-1}
+     * @throws IllegalArgumentException if {@code n} is negative
+     */
+    public static int[] permutation(RandomGenerator rng, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("argument is negative");
+        }
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        shuffle(rng, perm);
+        return perm;
+    }
+
+    /**
+     * Returns a lazy random permutation of [0, n) that uses O(1) memory.
+     *
+     * @param rng a random number generator, used once for the keys.
+     * @param n   number of elements
+     * @throws IllegalArgumentException if {@code n} is negative
+     */
+    public static FeistelPermutation lazyPermutation(RandomGenerator rng, long n) {
+        return new FeistelPermutation(n, rng.nextLong());
+    }
+
+    /**
+     * Draws the swap indices for positions i-1, i-2, ... from one 64-bit
+     * word: the word is multiplied by i, the high half is the first index
+     * and the low half is multiplied by i-1 for the next, and so on. The
+     * batch is as long as the product of the ranges fits in 63 bits, and
+     * the whole batch is redrawn on the rare biased low words.
+     *
+     * @return the number of indices drawn.
+     */
+    private static int draw(RandomGenerator rng, int i, int[] idx) {
+        int k = 1;
+        long bound = i;
+        while (k < MAX_BATCH && i - k > 1
+                && bound <= Long.MAX_VALUE / (i - k)) {
+            bound *= i - k;
+            k++;
+        }
+        while (true) {
+            long x = rng.nextLong();
+            for (int j = 0; j < k; j++) {
+                long range = i - j;
+                idx[j] = (int) (Math.multiplyHigh(x, range) + ((x >> 63) & range));
+                x *= range;
+            }
+            if (Long.compareUnsigned(x, bound) >= 0
+                    || Long.compareUnsigned(x, Long.remainderUnsigned(-bound, bound)) >= 0) {
+                return k;
+            }
+        }
+    }
+
+    // throw an IllegalArgumentException if x is null
+    private static void validateNotNull(Object x) {
+        if (x == null) {
+            throw new IllegalArgumentException("argument is null");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Places room-hallway systems in batches, checking the systems of a batch
+ * in parallel. A batch is drawn from rand in the order
+ * {@link Game#placeSystem(Tile[][], Random, LevelIndex, GenMetrics)}
+ * would draw it, and every system is checked against the world as it
+ * stood before the batch. The systems are then committed one by one in
+ * that order. A check only reads the room with the ring around it and
+ * the tiles around the far end of the hallway, so its result still holds
+ * unless a system committed earlier in the batch wrote there, in which
+ * case the system is checked again. The level, the level index and the
+ * metrics come out exactly as they would from placing the systems one at
+ * a time.
+ * <p>
+ * A batch draws all of its systems up front, so the caller must know that
+ * every one of them would have been attempted.
+ * <p>
+ * Experimental: on the fixed 80x30 map a check costs well under a
+ * microsecond, and no speedup over serial placement has been measured
+ * yet. When the common pool has a single thread the batch is checked
+ * on the calling thread, without a parallel stream.
+ */
+final class SpeculativePlacement {
+    private static final int FIELDS = Game.SYSTEM_FIELDS;
+
+    private final Tile[][] world;
+    private final Random rand;
+    private final LevelIndex index;
+    private final GenMetrics metrics;
+    private final int[] systems;
+    private final int[] verdicts;
+    /* The systems committed so far in the current batch, by number. */
+    private final int[] committed;
+
+    /**
+     * Creates a placement that attempts up to batch systems at a time.
+     *
+     * @param world   the game world, a 2-d array.
+     * @param rand    a random number generator calibrated to a seed.
+     * @param index   the index of the world, or null.
+     * @param metrics a generation metrics collector, or null.
+     * @param batch   the largest number of systems to check at once.
+     * @throws IllegalArgumentException if batch is not positive.
+     */
+    SpeculativePlacement(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics,
+                         int batch) {
+        if (batch <= 0) {
+            throw new IllegalArgumentException("batch must be positive");
+        }
+        this.world = world;
+        this.rand = rand;
+        this.index = index;
+        this.metrics = metrics;
+        this.systems = new int[batch * FIELDS];
+        this.verdicts = new int[batch];
+        this.committed = new int[batch];
+    }
+
+    /**
+     * Returns the largest number of systems attempted at a time.
+     */
+    int batch() {
+        return verdicts.length;
+    }
+
+    /**
+     * Attempts to place the next n systems rand draws.
+     *
+     * @param n the number of attempts, at most {@link #batch()}.
+     * @return the number of systems placed.
+     */
+    int place(int n) {
+        for (int i = 0; i < n; i++) {
+            Game.drawSystem(rand, systems, i * FIELDS);
+        }
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            IntStream.range(0, n).parallel().forEach(this::check);
+        } else {
+            for (int i = 0; i < n; i++) {
+                check(i);
+            }
+        }
+        int placed = 0;
+        for (int i = 0; i < n; i++) {
+            if (placed > 0 && overwritten(i, placed)) {
+                check(i);
+            }
+            Game.countSystem(metrics, verdicts[i]);
+            if (verdicts[i] == Game.SYSTEM_ACCEPTED) {
+                Game.commitSystem(world, index, systems, i * FIELDS);
+                committed[placed++] = i;
+            }
+        }
+        return placed;
+    }
+
+    private void check(int i) {
+        verdicts[i] = Game.checkSystem(world, systems, i * FIELDS);
+    }
+
+    /* Checks whether a committed system wrote a tile the check of
+       system i read. */
+    private boolean overwritten(int i, int placed) {
+        int at = i * FIELDS;
+        int endX = systems[at + 4] + systems[at + 6] - 1;
+        int endY = systems[at + 5] + systems[at + 7] - 1;
+        for (int c = 0; c < placed; c++) {
+            int other = committed[c] * FIELDS;
+            for (int part = other; part <= other + 4; part += 4) {
+                int x = systems[part];
+                int y = systems[part + 1];
+                int w = systems[part + 2];
+                int h = systems[part + 3];
+                if (overlaps(x, y, w, h, systems[at] - 1, systems[at + 1] - 1,
+                             systems[at + 2] + 2, systems[at + 3] + 2)
+                        || overlaps(x, y, w, h, endX - 1, endY - 1, 3, 3)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /* Checks whether two w x h rectangles at (x, y) share a tile. */
+    private static boolean overlaps(int x1, int y1, int w1, int h1,
+                                    int x2, int y2, int w2, int h2) {
+        return x1 < x2 + w2 && x2 < x1 + w1 && y1 < y2 + h2 && y2 < y1 + h1;
+    }
+}
@@ -0,0 +1,302 @@
+package Core;
+
+import java.util.Arrays;
+
+/**
+ * The rooms and hallways of a level, kept after generation so that
+ * questions like "which room is this tile in" do not rescan the grid.
+ * Structures are axis-aligned rectangles stored in parallel primitive
+ * arrays and numbered in the order they were placed. A uniform grid of
+ * BUCKET x BUCKET tile buckets lists the structures overlapping each
+ * bucket, so point and rectangle queries only look at the structures
+ * near the query, and nearest-structure queries search rings of buckets
+ * outward from the point.
+ * <p>
+ * Like the rest of {@link LevelIndex}, structures are not saved with a
+ * game, so a loaded level has none.
+ */
+public class StructureIndex {
+    public static final byte ROOM = 0;
+    public static final byte HALLWAY = 1;
+
+    private static final int BUCKET = 8;
+    /* Room for a typical level, so that generation does not grow the
+       arrays; they still grow on demand. */
+    private static final int CAPACITY = 128;
+    private static final int BUCKET_CAPACITY = 16;
+
+    private final int bucketsX;
+    private final int bucketsY;
+    private int count;
+    private byte[] kinds = new byte[CAPACITY];
+    /* Bounds as [x0, x1) by [y0, y1). */
+    private int[] x0 = new int[CAPACITY];
+    private int[] y0 = new int[CAPACITY];
+    private int[] x1 = new int[CAPACITY];
+    private int[] y1 = new int[CAPACITY];
+    private final int[][] buckets;
+    private final int[] bucketSizes;
+    /* Query stamps, so structures spanning several buckets are reported once. */
+    private int[] seen = new int[CAPACITY];
+    private int stamp;
+
+    /**
+     * Creates an empty index for a level.
+     *
+     * @param width  the level width.
+     * @param height the level height.
+     */
+    public StructureIndex(int width, int height) {
+        bucketsX = (width + BUCKET - 1) / BUCKET;
+        bucketsY = (height + BUCKET - 1) / BUCKET;
+        buckets = new int[bucketsX * bucketsY][BUCKET_CAPACITY];
+        bucketSizes = new int[bucketsX * bucketsY];
+    }
+
+    /**
+     * Records a structure placed by {@link Game#placerHelper}. Generated
+     * shapes and positions are positive; anything else places no tiles
+     * and is not recorded.
+     *
+     * @param kind  ROOM or HALLWAY.
+     * @param shape two-element integer array with dimensions of structure.
+     * @param pos   two-element integer array with placement coordinates.
+     * @return the id of the structure, or -1 if it was not recorded.
+     */
+    public int add(byte kind, int[] shape, int[] pos) {
+        if (pos[0] <= 0 || pos[1] <= 0 || shape[0] <= 0 || shape[1] <= 0) {
+            return -1;
+        }
+        return add(kind, pos[0], pos[1], pos[0] + shape[0], pos[1] + shape[1]);
+    }
+
+    /**
+     * Records a placed structure covering [ax, bx) by [ay, by).
+     *
+     * @param kind ROOM or HALLWAY.
+     * @return the id of the structure.
+     * @throws IllegalArgumentException if the rectangle is empty.
+     */
+    public int add(byte kind, int ax, int ay, int bx, int by) {
+        if (bx <= ax || by <= ay) {
+            throw new IllegalArgumentException("empty structure: [" + ax + ", " + bx
+                                               + ") x [" + ay + ", " + by + ")");
+        }
+        if (count == kinds.length) {
+            int n = count * 2;
+            kinds = Arrays.copyOf(kinds, n);
+            x0 = Arrays.copyOf(x0, n);
+            y0 = Arrays.copyOf(y0, n);
+            x1 = Arrays.copyOf(x1, n);
+            y1 = Arrays.copyOf(y1, n);
+            seen = Arrays.copyOf(seen, n);
+        }
+        int id = count++;
+        kinds[id] = kind;
+        x0[id] = ax;
+        y0[id] = ay;
+        x1[id] = bx;
+        y1[id] = by;
+        for (int bx0 = bucketX(ax); bx0 <= bucketX(bx - 1); bx0++) {
+            for (int by0 = bucketY(ay); by0 <= bucketY(by - 1); by0++) {
+                int b = bx0 * bucketsY + by0;
+                if (bucketSizes[b] == buckets[b].length) {
+                    buckets[b] = Arrays.copyOf(buckets[b], bucketSizes[b] * 2);
+                }
+                buckets[b][bucketSizes[b]++] = id;
+            }
+        }
+        return id;
+    }
+
+    /* ++++++++++++++++++++++++++ ACCESSORS ++++++++++++++++++++++++++++ */
+
+    /**
+     * Returns the number of structures.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the kind of a structure, ROOM or HALLWAY.
+     *
+     * @param id the id of a structure.
+     */
+    public byte kind(int id) {
+        check(id);
+        return kinds[id];
+    }
+
+    /**
+     * Returns the bounds of a structure as {x0, y0, x1, y1}, with the
+     * upper bounds exclusive.
+     *
+     * @param id the id of a structure.
+     */
+    public int[] bounds(int id) {
+        check(id);
+        return new int[]{x0[id], y0[id], x1[id], y1[id]};
+    }
+
+    /**
+     * Returns a short description of a structure for the HUD, such as
+     * "room 3 (5x4)".
+     *
+     * @param id the id of a structure.
+     */
+    public String describe(int id) {
+        check(id);
+        return (kinds[id] == ROOM ? "room " : "hallway ") + id
+                + " (" + (x1[id] - x0[id]) + "x" + (y1[id] - y0[id]) + ")";
+    }
+
+    /* +++++++++++++++++++++++++++ QUERIES +++++++++++++++++++++++++++++ */
+
+    /**
+     * Returns the structure containing a tile. Where structures overlap,
+     * rooms are preferred over hallways, then earlier structures.
+     *
+     * @param x the x-coordinate of the tile.
+     * @param y the y-coordinate of the tile.
+     * @return the id of the structure, or -1 if the tile is in none.
+     */
+    public int at(int x, int y) {
+        if (x < 0 || y < 0 || bucketX(x) >= bucketsX || bucketY(y) >= bucketsY) {
+            return -1;
+        }
+        int b = bucketX(x) * bucketsY + bucketY(y);
+        int best = -1;
+        for (int i = 0; i < bucketSizes[b]; i++) {
+            int id = buckets[b][i];
+            if (contains(id, x, y) && (best < 0 || kinds[id] < kinds[best]
+                    || (kinds[id] == kinds[best] && id < best))) {
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lists the structures overlapping a rectangle [ax, bx) by [ay, by).
+     *
+     * @param out receives the ids; must hold {@link #size()} ids.
+     * @return the number of structures found.
+     */
+    public int within(int ax, int ay, int bx, int by, int[] out) {
+        int n = 0;
+        stamp++;
+        for (int cx = Math.max(0, bucketX(ax)); cx <= Math.min(bucketsX - 1, bucketX(bx - 1)); cx++) {
+            for (int cy = Math.max(0, bucketY(ay)); cy <= Math.min(bucketsY - 1, bucketY(by - 1)); cy++) {
+                int b = cx * bucketsY + cy;
+                for (int i = 0; i < bucketSizes[b]; i++) {
+                    int id = buckets[b][i];
+                    if (seen[id] != stamp && x0[id] < bx && ax < x1[id]
+                            && y0[id] < by && ay < y1[id]) {
+                        seen[id] = stamp;
+                        out[n++] = id;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Lists the structures with a tile within a distance of a point.
+     *
+     * @param x      the x-coordinate of the point.
+     * @param y      the y-coordinate of the point.
+     * @param radius the Euclidean distance in tiles.
+     * @param out    receives the ids; must hold {@link #size()} ids.
+     * @return the number of structures found.
+     */
+    public int withinRadius(int x, int y, int radius, int[] out) {
+        int n = within(x - radius, y - radius, x + radius + 1, y + radius + 1, out);
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (distanceSquared(out[i], x, y) <= (long) radius * radius) {
+                out[kept++] = out[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Returns the structure closest to a point, measured to its nearest
+     * tile; ties go to the earlier structure.
+     *
+     * @param x the x-coordinate of the point.
+     * @param y the y-coordinate of the point.
+     * @return the id of the structure, or -1 if there are none.
+     */
+    public int nearest(int x, int y) {
+        int best = -1;
+        long bestDist = Long.MAX_VALUE;
+        int cx = Math.max(0, Math.min(bucketsX - 1, bucketX(x)));
+        int cy = Math.max(0, Math.min(bucketsY - 1, bucketY(y)));
+        int rings = Math.max(bucketsX, bucketsY);
+        for (int ring = 0; ring <= rings; ring++) {
+            if (best >= 0 && ringDistanceSquared(x, y, cx, cy, ring) > bestDist) {
+                break;
+            }
+            /* Walks the perimeter of the ring: whole columns at its ends,
+               only the top and bottom buckets in between. */
+            for (int bx = Math.max(0, cx - ring); bx <= Math.min(bucketsX - 1, cx + ring); bx++) {
+                int step = bx == cx - ring || bx == cx + ring ? 1 : 2 * ring;
+                for (int by = cy - ring; by <= cy + ring; by += step) {
+                    if (by < 0 || by >= bucketsY) {
+                        continue;
+                    }
+                    int b = bx * bucketsY + by;
+                    for (int i = 0; i < bucketSizes[b]; i++) {
+                        int id = buckets[b][i];
+                        long d = distanceSquared(id, x, y);
+                        if (d < bestDist || (d == bestDist && id < best)) {
+                            bestDist = d;
+                            best = id;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /* A lower bound on the squared distance from a point in bucket
+       (cx, cy) to any tile in a bucket at least ring buckets away. */
+    private static long ringDistanceSquared(int x, int y, int cx, int cy, int ring) {
+        if (ring == 0) {
+            return 0;
+        }
+        long d = Math.min(Math.min(x - ((cx - ring + 1) * BUCKET - 1), (cx + ring) * BUCKET - x),
+                          Math.min(y - ((cy - ring + 1) * BUCKET - 1), (cy + ring) * BUCKET - y));
+        d = Math.max(0, d);
+        return d * d;
+    }
+
+    private boolean contains(int id, int x, int y) {
+        return x0[id] <= x && x < x1[id] && y0[id] <= y && y < y1[id];
+    }
+
+    /* Squared distance from a point to the nearest tile of a structure. */
+    private long distanceSquared(int id, int x, int y) {
+        long dx = Math.max(0, Math.max(x0[id] - x, x - (x1[id] - 1)));
+        long dy = Math.max(0, Math.max(y0[id] - y, y - (y1[id] - 1)));
+        return dx * dx + dy * dy;
+    }
+
+    private static int bucketX(int x) {
+        return Math.floorDiv(x, BUCKET);
+    }
+
+    private static int bucketY(int y) {
+        return Math.floorDiv(y, BUCKET);
+    }
+
+    private void check(int id) {
+        if (id < 0 || id >= count) {
+            throw new IndexOutOfBoundsException("no structure with id: " + id);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+/**
+ * Assigns a small stable integer id to each tile used by the game, so
+ * worlds can be hashed, stored and compared as flat primitive data.
+ * Ids are part of the golden corpus and the save formats, so new tiles
+ * must only ever be appended.
+ */
+public class TileIds {
+    public static final int NOTHING = 0;
+    public static final int FLOOR = 1;
+    public static final int WALL = 2;
+    public static final int PLAYER = 3;
+    public static final int LADDER = 4;
+    public static final int UNKNOWN = 5;
+
+    /** Number of distinct ids, including UNKNOWN. */
+    public static final int COUNT = 6;
+
+    private static final Tile[] TILES = {
+        TileSet.NOTHING, TileSet.FLOOR, TileSet.WALL, TileSet.PLAYER, TileSet.LADDER
+    };
+
+    /**
+     * Returns the id of a tile, or UNKNOWN for tiles outside the game's set.
+     * Tiles of a loaded game are deserialized copies, so tiles that are
+     * not one of the game's instances are matched by character and
+     * description.
+     *
+     * @param tile a tile.
+     */
+    public static int of(Tile tile) {
+        for (int i = 0; i < TILES.length; i++) {
+            if (TILES[i] == tile) {
+                return i;
+            }
+        }
+        if (tile == null) {
+            return UNKNOWN;
+        }
+        for (int i = 0; i < TILES.length; i++) {
+            if (TILES[i].character() == tile.character()
+                    && TILES[i].description().equals(tile.description())) {
+                return i;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Returns the tile with an id.
+     *
+     * @param id a tile id other than UNKNOWN.
+     * @throws IllegalArgumentException if the id has no tile.
+     */
+    public static Tile tile(int id) {
+        if (id < 0 || id >= TILES.length) {
+            throw new IllegalArgumentException("no tile with id: " + id);
+        }
+        return TILES[id];
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the tile ids of a world, in column
+     * order, followed by a final avalanche step.
+     *
+     * @param world the game world, a 2-d array.
+     */
+    public static long hash(Tile[][] world) {
+        long h = 0xcbf29ce484222325L;
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[x].length; y++) {
+                h ^= of(world[x][y]);
+                h *= 0x100000001b3L;
+            }
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
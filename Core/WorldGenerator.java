@@ -0,0 +1,159 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.util.Random;
+
+/**
+ * An algorithm that carves the walkable layout of a level. A generator
+ * receives an empty world, writes FLOOR and WALL tiles through
+ * {@link LevelIndex#set} so that the level index stays current, and leaves
+ * spawning the Player and ladders to {@link Game}. Generators must draw all
+ * of their randomness from the given Random so that levels are
+ * reproducible from their seed.
+ */
+public interface WorldGenerator {
+
+    /**
+     * Generates the layout of a level.
+     *
+     * @param world   an empty game world, a 2-d array.
+     * @param rand    a random number generator calibrated to a seed.
+     * @param index   the index of the world, or null.
+     * @param metrics a generation metrics collector, or null.
+     */
+    void generate(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics);
+
+    /**
+     * Generates the layout of a level, letting a bound abandon it as soon
+     * as the level can no longer be accepted. Generators that cannot bound
+     * their remaining work generate the whole level and ask once at the end.
+     * Checking the bound draws nothing from rand, so a completed level is
+     * the same as one from {@link #generate(Tile[][], Random, LevelIndex, GenMetrics)}.
+     *
+     * @param world   an empty game world, a 2-d array.
+     * @param rand    a random number generator calibrated to a seed.
+     * @param index   the index of the world.
+     * @param metrics a generation metrics collector, or null.
+     * @param bound   decides whether to go on, or null to never abandon.
+     * @return whether the level was completed.
+     */
+    default boolean generate(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics,
+                             Bound bound) {
+        Steps steps = start(world, rand, index, metrics, bound);
+        while (steps.step()) {
+            continue;
+        }
+        return steps.completed();
+    }
+
+    /**
+     * Starts generating a level one step at a time, so that generation can
+     * be spread over frames, paused or abandoned. Driving the steps to the
+     * end produces the same level as {@link #generate}. Generators that
+     * cannot be divided do all of their work in the first step.
+     *
+     * @param world   an empty game world, a 2-d array.
+     * @param rand    a random number generator calibrated to a seed.
+     * @param index   the index of the world.
+     * @param metrics a generation metrics collector, or null.
+     * @param bound   decides whether to go on, or null to never abandon.
+     */
+    default Steps start(Tile[][] world, Random rand, LevelIndex index, GenMetrics metrics,
+                        Bound bound) {
+        return new Steps() {
+            private boolean done;
+            private boolean completed;
+
+            @Override
+            public boolean step() {
+                if (!done) {
+                    generate(world, rand, index, metrics);
+                    completed = bound == null || bound.feasible(index, 0, 0);
+                    done = true;
+                }
+                return false;
+            }
+
+            @Override
+            public boolean completed() {
+                return completed;
+            }
+
+            @Override
+            public double progress() {
+                return done ? 1.0 : 0.0;
+            }
+        };
+    }
+
+    /**
+     * Returns the short name of the algorithm.
+     */
+    String name();
+
+    /**
+     * The generation of one level, divided into short steps.
+     */
+    interface Steps {
+        /**
+         * Does the next step of the generation.
+         *
+         * @return whether there are steps left.
+         */
+        boolean step();
+
+        /**
+         * Returns whether the level was finished rather than abandoned by
+         * its bound. Only meaningful once there are no steps left.
+         */
+        boolean completed();
+
+        /**
+         * Returns an estimate of the fraction of the work done, from 0 to 1.
+         */
+        double progress();
+    }
+
+    /**
+     * Decides during generation whether a level can still be accepted.
+     */
+    interface Bound {
+        /**
+         * Checks whether the level may still be accepted, given the most
+         * that generation can still add to it.
+         *
+         * @param index         the index of the level so far.
+         * @param maxStructures the most structures still to be placed.
+         * @param maxFloors     the most floor tiles still to be placed.
+         * @return false to abandon the level.
+         */
+        boolean feasible(LevelIndex index, int maxStructures, int maxFloors);
+    }
+
+    /**
+     * Returns the generator with a name: "rooms", "adaptive" (rooms with
+     * adaptive stopping), "speculative" (experimental: rooms
+     * checked in parallel batches), "bsp" or "caves".
+     *
+     * @param name the name of a generator.
+     * @throws IllegalArgumentException if there is no generator with the name.
+     */
+    static WorldGenerator forName(String name) {
+        switch (name) {
+            case "rooms":
+                return new RoomHallGenerator();
+            case "adaptive":
+                return new RoomHallGenerator(RoomHallGenerator.DEFAULT_WINDOW,
+                                             RoomHallGenerator.DEFAULT_THRESHOLD);
+            case "speculative":
+                return new RoomHallGenerator(RoomHallGenerator.DEFAULT_BATCH);
+            case "bsp":
+                return new BspGenerator();
+            case "caves":
+                return new CaveGenerator();
+            default:
+                throw new IllegalArgumentException("unknown generator: " + name);
+        }
+    }
+}
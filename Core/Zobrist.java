@@ -0,0 +1,74 @@
+package Core;
+
+import TileEngine.Tile;
+
+/**
+ * Zobrist-style hashing of worlds. The hash of a world is the XOR of one
+ * 64-bit key per (x, y, tile) cell, so changing a single tile updates it in
+ * O(1) by XOR-ing out the old key and XOR-ing in the new one. Keys are
+ * derived from the coordinates and tile id with a SplitMix64 finalizer
+ * rather than stored in a table, and empty tiles have the key 0, so a
+ * freshly initialized world hashes to 0.
+ */
+public class Zobrist {
+
+    /**
+     * Returns the key of a tile at a position.
+     *
+     * @param x    the x-coordinate of the tile.
+     * @param y    the y-coordinate of the tile.
+     * @param tile the tile.
+     */
+    public static long key(int x, int y, Tile tile) {
+        return key(x, y, TileIds.of(tile));
+    }
+
+    /**
+     * Returns the key of a tile id at a position.
+     *
+     * @param x  the x-coordinate of the tile.
+     * @param y  the y-coordinate of the tile.
+     * @param id the tile id.
+     */
+    public static long key(int x, int y, int id) {
+        if (id == TileIds.NOTHING) {
+            return 0L;
+        }
+        long z = ((long) x << 40) ^ ((long) y << 16) ^ id;
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Computes the hash of a whole world from scratch.
+     *
+     * @param world the game world, a 2-d array.
+     */
+    public static long hash(Tile[][] world) {
+        long h = 0L;
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[x].length; y++) {
+                h ^= key(x, y, world[x][y]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns the hash after a tile changes.
+     *
+     * @param hash   the hash before the change.
+     * @param x      the x-coordinate of the tile.
+     * @param y      the y-coordinate of the tile.
+     * @param before the tile before the change.
+     * @param after  the tile after the change.
+     */
+    public static long update(long hash, int x, int y, Tile before, Tile after) {
+        if (before == after) {
+            return hash;
+        }
+        return hash ^ key(x, y, before) ^ key(x, y, after);
+    }
+}
@@ -0,0 +1,62 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Checks that structure placement allocates nothing. For every seed a
+ * level is generated up to its initial room, then placeSystem is run
+ * many times, with the reusable array generation draws systems into,
+ * while the bytes allocated by this thread are counted. Any
+ * allocation fails the run. The level index is sized for a full level
+ * up front, so accepted systems allocate nothing either.
+ * <p>
+ * Usage: {@code java -XX:-DoEscapeAnalysis Core.Bench allocation [seeds] [attempts]}
+ * <p>
+ * Escape analysis is turned off so that allocations the JIT happens to
+ * scalar-replace in one run are still caught.
+ */
+class AllocationCheck implements Harness {
+    public static final int DEFAULT_SEEDS = 50;
+    public static final int DEFAULT_ATTEMPTS = 20_000;
+    /* Levels generated before measuring, so class loading and JIT
+       compilation are not counted. */
+    private static final int WARMUP_SEEDS = 20;
+
+    @Override
+    public boolean run(String[] args) {
+        int seeds = Bench.intArg(args, 0, DEFAULT_SEEDS);
+        int attempts = Bench.intArg(args, 1, DEFAULT_ATTEMPTS);
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        /* The cost of reading the counter itself. */
+        long overhead = -bean.getThreadAllocatedBytes(thread) + bean.getThreadAllocatedBytes(thread);
+
+        for (int seed = 0; seed < WARMUP_SEEDS; seed++) {
+            Game.genRandomWorld(new Game(), -1 - seed);
+        }
+        long total = 0;
+        for (int seed = 0; seed < seeds; seed++) {
+            Random rand = new Random(seed);
+            Tile[][] world = Game.initWorld();
+            LevelIndex index = new LevelIndex(Game.WIDTH, Game.HEIGHT);
+            Game.initMap(world, rand, index, null);
+            int[] system = new int[Game.SYSTEM_FIELDS];
+            long before = bean.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < attempts; i++) {
+                Game.placeSystem(world, rand, index, null, system);
+            }
+            long bytes = bean.getThreadAllocatedBytes(thread) - before - overhead;
+            if (bytes > 0) {
+                System.out.printf("seed %d: %d bytes%n", seed, bytes);
+                total += bytes;
+            }
+        }
+        System.out.printf("%d levels, %d placeSystem calls, %d bytes allocated%n",
+                          seeds, (long) seeds * attempts, total);
+        return total == 0;
+    }
+}
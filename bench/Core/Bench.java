@@ -0,0 +1,78 @@
+package Core;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs the checks and benchmarks of the game by name. The harnesses live
+ * in this source directory, apart from the game, and are compiled against
+ * its classes, so they can reach package-private parts of Core. The exit
+ * status is 0 when every check passed, 1 when one failed and 2 for a bad
+ * command line.
+ * <p>
+ * Usage: {@code java -cp <game classes>:<bench classes> Core.Bench <harness> [args...]}
+ */
+public class Bench {
+    private static final Map<String, Supplier<Harness>> HARNESSES = new LinkedHashMap<>();
+
+    static {
+        HARNESSES.put("allocation", AllocationCheck::new);
+        HARNESSES.put("generators", GeneratorBenchmark::new);
+        HARNESSES.put("golden", GoldenCorpus::new);
+        HARNESSES.put("kernels", GridKernelBenchmark::new);
+        HARNESSES.put("renderer", RendererBenchmark::new);
+        HARNESSES.put("samplers", SamplerBenchmark::new);
+        HARNESSES.put("savefile", SaveFileCheck::new);
+        HARNESSES.put("saves", SaveStoreBenchmark::new);
+        HARNESSES.put("scripts", ScriptBenchmark::new);
+        HARNESSES.put("shared", SharedWorldBenchmark::new);
+        HARNESSES.put("shuffles", ShuffleBenchmark::new);
+        HARNESSES.put("speculative", SpeculativeBenchmark::new);
+        HARNESSES.put("structures", StructureBenchmark::new);
+        HARNESSES.put("walks", RandomWalkBenchmark::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Supplier<Harness> harness = args.length > 0 ? HARNESSES.get(args[0]) : null;
+        if (harness == null) {
+            System.out.println("usage: Bench <harness> [args...], harnesses: "
+                               + String.join(" ", HARNESSES.keySet()));
+            System.exit(2);
+        }
+        boolean ok;
+        try {
+            ok = harness.get().run(Arrays.copyOfRange(args, 1, args.length));
+        } catch (IllegalArgumentException e) {
+            System.out.println(args[0] + ": " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Returns an optional integer argument.
+     *
+     * @param args     the arguments of a harness.
+     * @param i        the position of the argument.
+     * @param fallback the value if the argument is absent.
+     * @throws IllegalArgumentException if the argument is not an integer.
+     */
+    static int intArg(String[] args, int i, int fallback) {
+        return args.length > i ? Integer.parseInt(args[i]) : fallback;
+    }
+
+    /**
+     * Returns an optional long argument.
+     *
+     * @param args     the arguments of a harness.
+     * @param i        the position of the argument.
+     * @param fallback the value if the argument is absent.
+     * @throws IllegalArgumentException if the argument is not an integer.
+     */
+    static long longArg(String[] args, int i, long fallback) {
+        return args.length > i ? Long.parseLong(args[i]) : fallback;
+    }
+}
@@ -0,0 +1,70 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Arrays;
+
+/**
+ * Benchmarks the world generators against each other. Every generator
+ * builds the same range of seeds, and the mean time per level, the
+ * fraction of the map that is floor and the mean number of regions
+ * (which should be 1 for a connected level) are printed per generator.
+ * <p>
+ * Usage: {@code java Core.Bench generators [seeds] [generator...]}
+ */
+class GeneratorBenchmark implements Harness {
+    public static final int DEFAULT_SEEDS = 500;
+    /* Seeds generated before measuring, so timings exclude JIT warm-up. */
+    private static final int WARMUP_SEEDS = 100;
+
+    @Override
+    public boolean run(String[] args) {
+        int seeds = Bench.intArg(args, 0, DEFAULT_SEEDS);
+        String[] names = args.length > 1
+                ? Arrays.copyOfRange(args, 1, args.length)
+                : new String[]{"rooms", "bsp", "caves"};
+
+        System.out.println("generator,msPerLevel,floorFraction,regions");
+        for (String name : names) {
+            WorldGenerator generator = WorldGenerator.forName(name);
+            for (int s = 0; s < WARMUP_SEEDS; s++) {
+                generate(generator, s);
+            }
+            long nanos = 0;
+            long floors = 0;
+            long regions = 0;
+            for (int s = 0; s < seeds; s++) {
+                long start = System.nanoTime();
+                Game g = generate(generator, s);
+                nanos += System.nanoTime() - start;
+                floors += countFloors(g.world());
+                regions += g.regions().regionCount();
+            }
+            double cells = (double) seeds * Game.WIDTH * Game.HEIGHT;
+            System.out.printf("%s,%.3f,%.3f,%.2f%n", name, nanos / 1e6 / seeds,
+                              floors / cells, (double) regions / seeds);
+        }
+        return true;
+    }
+
+    /* Generates the world of a seed with a generator. */
+    private static Game generate(WorldGenerator generator, int seed) {
+        Game g = new Game();
+        Game.genRandomWorld(g, seed, generator);
+        return g;
+    }
+
+    /* Counts the walkable tiles of a world, including the Player and ladder. */
+    private static int countFloors(Tile[][] world) {
+        int n = 0;
+        for (Tile[] column : world) {
+            for (Tile t : column) {
+                if (t != TileSet.WALL && t != TileSet.NOTHING) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,239 @@
+package Core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Regression and performance corpus for world generation. For every seed
+ * in a fixed range, the world and overworld are generated the same way
+ * a new game does, and the grid hashes and spawn positions are compared
+ * against a checked-in golden file. Only those decide whether the check
+ * passes. Wall-clock time and allocated bytes are also recorded per seed
+ * and compared against the golden run, but the golden costs were measured
+ * on whatever machine and JVM recorded the file, so the comparison is
+ * printed as advice and does not fail the check. The strict mode also
+ * fails on a regression beyond the threshold, for use on the machine that
+ * recorded the file.
+ * <p>
+ * Usage: {@code java Core.Bench golden record|check|strict [file] [seeds] [threshold]}
+ * <p>
+ * For allocation counts that can be compared between runs, add
+ * {@code -XX:-DoEscapeAnalysis}: whether the JIT scalar-replaces the
+ * generator's small arrays depends on compilation timing, which would
+ * make the counts differ severalfold between identical runs.
+ */
+class GoldenCorpus implements Harness {
+    public static final String DEFAULT_FILE = "./golden-worlds.csv";
+    public static final int DEFAULT_SEEDS = 1000;
+    public static final double DEFAULT_THRESHOLD = 1.5;
+    /* Seeds generated before measuring, so timings exclude JIT warm-up. */
+    private static final int WARMUP_SEEDS = 200;
+    /* Each seed is measured this many times and the fastest run is kept. */
+    private static final int REPEATS = 3;
+    private static final String HEADER = "seed,worldHash,overworldHash,playerX,playerY,"
+            + "ladderX,ladderY,overladderX,overladderY,nanos,allocatedBytes";
+
+    /* One line of the corpus. */
+    private static class Entry {
+        int seed;
+        String content;
+        long nanos;
+        long allocated;
+
+        @Override
+        public String toString() {
+            return seed + "," + content + "," + nanos + "," + allocated;
+        }
+    }
+
+    @Override
+    public boolean run(String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("usage: golden record|check|strict [file] "
+                                               + "[seeds] [threshold]");
+        }
+        if (!args[0].equals("record") && !args[0].equals("check")
+                && !args[0].equals("strict")) {
+            throw new IllegalArgumentException("unknown mode: " + args[0]);
+        }
+        String file = args.length > 1 ? args[1] : DEFAULT_FILE;
+        int seeds = Bench.intArg(args, 2, DEFAULT_SEEDS);
+        double threshold = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_THRESHOLD;
+        if (escapeAnalysisOn()) {
+            System.out.println("note: allocation counts vary between runs unless "
+                               + "-XX:-DoEscapeAnalysis is set");
+        }
+
+        for (int s = 0; s < WARMUP_SEEDS; s++) {
+            generate(s);
+        }
+        if (args[0].equals("record")) {
+            record(file, seeds);
+            return true;
+        }
+        return check(file, seeds, threshold, args[0].equals("strict"));
+    }
+
+    /**
+     * Generates a seed's levels REPEATS times and keeps the lowest time
+     * and allocation.
+     *
+     * @param seed the seed typed by the player.
+     */
+    private static Entry measure(int seed) {
+        Entry best = generate(seed);
+        for (int i = 1; i < REPEATS; i++) {
+            Entry e = generate(seed);
+            best.nanos = Math.min(best.nanos, e.nanos);
+            best.allocated = Math.min(best.allocated, e.allocated);
+        }
+        return best;
+    }
+
+    /**
+     * Generates a seed's levels once and measures the time and allocation.
+     *
+     * @param seed the seed typed by the player.
+     */
+    private static Entry generate(int seed) {
+        Game g = new Game();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        Game.genRandomWorld(g, seed);
+        Game.genRandomOverworld(g, seed ^ 2);
+        long nanos = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+
+        Entry e = new Entry();
+        e.seed = seed;
+        e.nanos = nanos;
+        e.allocated = allocated;
+        int[] player = g.playerPos();
+        int[] ladder = g.ladderPos();
+        int[] overladder = g.overladderPos();
+        e.content = Long.toHexString(TileIds.hash(g.world())) + ","
+                + Long.toHexString(TileIds.hash(g.overworld())) + ","
+                + player[0] + "," + player[1] + "," + ladder[0] + "," + ladder[1] + ","
+                + overladder[0] + "," + overladder[1];
+        return e;
+    }
+
+    /**
+     * Writes a new golden file for seeds 0 through seeds - 1.
+     *
+     * @param file  the golden file.
+     * @param seeds the number of seeds.
+     */
+    public static void record(String file, int seeds) throws IOException {
+        try (PrintWriter out = new PrintWriter(new File(file))) {
+            out.println(HEADER);
+            for (int s = 0; s < seeds; s++) {
+                out.println(measure(s));
+            }
+        }
+        System.out.println("recorded " + seeds + " seeds to " + file);
+    }
+
+    /**
+     * Compares seeds 0 through seeds - 1 against a golden file. A seed
+     * drifts if its grids or spawns differ. Seeds whose time or
+     * allocation exceeds the golden value by more than the threshold
+     * factor are counted, and the totals are compared the same way. As
+     * the golden costs depend on the machine that recorded them, a total
+     * beyond the threshold only fails a strict check.
+     *
+     * @param file      the golden file.
+     * @param seeds     the number of seeds.
+     * @param threshold the allowed ratio of new to golden cost.
+     * @param strict    whether a total beyond the threshold is a failure.
+     * @return true if no seed drifted and, if strict, no total regressed.
+     */
+    public static boolean check(String file, int seeds, double threshold, boolean strict)
+            throws IOException {
+        Map<Integer, Entry> golden = load(file);
+        int drift = 0;
+        int slow = 0;
+        long goldenNanos = 0;
+        long goldenAllocated = 0;
+        long nanos = 0;
+        long allocated = 0;
+        for (int s = 0; s < seeds; s++) {
+            Entry expected = golden.get(s);
+            if (expected == null) {
+                System.out.println("seed " + s + ": missing from golden file");
+                drift++;
+                continue;
+            }
+            Entry actual = measure(s);
+            if (!actual.content.equals(expected.content)) {
+                System.out.println("seed " + s + ": DRIFT expected " + expected.content
+                                   + " got " + actual.content);
+                drift++;
+            }
+            if (actual.nanos > threshold * expected.nanos
+                    || actual.allocated > threshold * expected.allocated) {
+                slow++;
+            }
+            goldenNanos += expected.nanos;
+            goldenAllocated += expected.allocated;
+            nanos += actual.nanos;
+            allocated += actual.allocated;
+        }
+        double timeRatio = (double) nanos / Math.max(1, goldenNanos);
+        double allocRatio = (double) allocated / Math.max(1, goldenAllocated);
+        System.out.printf("%d seeds, %d drifted, %d over threshold%n", seeds, drift, slow);
+        System.out.printf("time %.1f ms (%.2fx golden), allocated %.1f MB (%.2fx golden)%n",
+                          nanos / 1e6, timeRatio, allocated / 1e6, allocRatio);
+        boolean regressed = timeRatio > threshold || allocRatio > threshold;
+        if (regressed && strict) {
+            System.out.println("PERFORMANCE REGRESSION beyond " + threshold + "x");
+        } else if (regressed) {
+            System.out.println("note: cost is beyond " + threshold + "x the golden run; "
+                               + "rerun record on this machine before comparing");
+        }
+        return drift == 0 && !(strict && regressed);
+    }
+
+    /* Reads a golden file into a map from seed to entry. */
+    private static Map<Integer, Entry> load(String file) throws IOException {
+        Map<Integer, Entry> golden = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line = in.readLine(); // header
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(",");
+                Entry e = new Entry();
+                e.seed = Integer.parseInt(fields[0]);
+                e.content = line.substring(line.indexOf(',') + 1,
+                        line.lastIndexOf(',', line.lastIndexOf(',') - 1));
+                e.nanos = Long.parseLong(fields[fields.length - 2]);
+                e.allocated = Long.parseLong(fields[fields.length - 1]);
+                golden.put(e.seed, e);
+            }
+        }
+        return golden;
+    }
+
+    /* Checks the HotSpot DoEscapeAnalysis flag, assuming it is on if the
+       JVM cannot tell. */
+    private static boolean escapeAnalysisOn() {
+        com.sun.management.HotSpotDiagnosticMXBean bean = ManagementFactory
+                .getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+        return bean == null || !"false".equals(bean.getVMOption("DoEscapeAnalysis").getValue());
+    }
+
+    /* Bytes allocated by this thread so far, or 0 if the JVM cannot tell. */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0L;
+    }
+}
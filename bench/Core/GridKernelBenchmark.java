@@ -0,0 +1,137 @@
+package Core;
+
+import java.util.Arrays;
+
+/**
+ * Checks the vector grid kernels against the scalar ones and times both.
+ * Grids are tiled from generated worlds, from the size of one level up to
+ * several megabytes, so the larger runs show memory-bound throughput.
+ * Diffs compare a grid with a sparsely edited copy of itself.
+ * <p>
+ * Usage: {@code java --add-modules jdk.incubator.vector Core.Bench kernels}, with
+ * the vector classes built by scripts/build.sh on the class path.
+ */
+class GridKernelBenchmark implements Harness {
+    private static final int[] SIDES = {0, 256, 2048};
+    /* Cells processed per kernel and implementation; small grids are
+       repeated more often so every run is long enough to time. */
+    private static final long WORK = 1L << 28;
+    /* Kept in a field so the JIT cannot drop the counting kernels. */
+    private static volatile long sink;
+
+    @Override
+    public boolean run(String[] args) {
+        GridKernels scalar = GridKernels.scalar();
+        GridKernels vector = GridKernels.vector();
+        if (vector == null) {
+            System.out.println("jdk.incubator.vector is not available, timing scalar only");
+        }
+
+        System.out.println("kernels,cells,fill,replace,count,mask,diff (ns per cell)");
+        for (int side : SIDES) {
+            byte[] a = grid(1, side);
+            byte[] b = edited(a);
+            if (vector != null && !agree(scalar, vector, a, b)) {
+                System.out.println("vector kernels disagree with scalar kernels");
+                return false;
+            }
+            time(scalar, a, b);
+            if (vector != null) {
+                time(vector, a, b);
+            }
+        }
+        return true;
+    }
+
+    /* Builds a grid of side * side cells tiled from a generated world, or
+       a single world when side is 0. */
+    private static byte[] grid(int seed, int side) {
+        Game g = new Game();
+        Game.genRandomWorld(g, seed);
+        byte[] world = GridKernels.flatten(g.world(), null);
+        if (side == 0) {
+            return world;
+        }
+        byte[] grid = new byte[side * side];
+        for (int i = 0; i < grid.length; i += world.length) {
+            System.arraycopy(world, 0, grid, i, Math.min(world.length, grid.length - i));
+        }
+        return grid;
+    }
+
+    /* Copies a grid with a sparse scattering of changed cells, like two
+       frames of the same level. */
+    private static byte[] edited(byte[] grid) {
+        byte[] b = grid.clone();
+        for (int i = 0; i < b.length; i += 997) {
+            b[i] = (byte) ((b[i] + 1) % TileIds.UNKNOWN);
+        }
+        return b;
+    }
+
+    /* Runs every kernel through both implementations and compares. */
+    private static boolean agree(GridKernels s, GridKernels v, byte[] a, byte[] b) {
+        for (byte id = 0; id < TileIds.COUNT; id++) {
+            if (s.count(a, id) != v.count(a, id)) {
+                return false;
+            }
+            long[] sm = new long[(a.length + 63) >>> 6];
+            long[] vm = new long[sm.length];
+            s.mask(a, id, sm);
+            v.mask(a, id, vm);
+            if (!Arrays.equals(sm, vm)) {
+                return false;
+            }
+        }
+        int[] sc = new int[a.length];
+        int[] vc = new int[a.length];
+        int n = s.diff(a, b, sc);
+        if (n != v.diff(a, b, vc) || !Arrays.equals(sc, 0, n, vc, 0, n)) {
+            return false;
+        }
+        byte[] sr = a.clone();
+        byte[] vr = a.clone();
+        s.replace(sr, (byte) TileIds.NOTHING, (byte) TileIds.WALL);
+        v.replace(vr, (byte) TileIds.NOTHING, (byte) TileIds.WALL);
+        s.fill(sr, (byte) TileIds.FLOOR);
+        v.fill(vr, (byte) TileIds.FLOOR);
+        return Arrays.equals(sr, vr);
+    }
+
+    private static void time(GridKernels k, byte[] a, byte[] b) {
+        byte[] work = new byte[a.length];
+        long[] bits = new long[(a.length + 63) >>> 6];
+        int[] cells = new int[a.length];
+        long[] nanos = new long[5];
+        int rounds = (int) Math.max(10, WORK / a.length);
+        for (int r = 0; r < 2 * rounds; r++) {
+            boolean measured = r >= rounds; // first half warms up the JIT
+            long t = System.nanoTime();
+            k.fill(work, (byte) TileIds.NOTHING);
+            t = lap(nanos, 0, t, measured);
+            System.arraycopy(a, 0, work, 0, a.length);
+            t = System.nanoTime();
+            k.replace(work, (byte) TileIds.NOTHING, (byte) TileIds.WALL);
+            t = lap(nanos, 1, t, measured);
+            sink += k.count(a, (byte) TileIds.FLOOR);
+            t = lap(nanos, 2, t, measured);
+            k.mask(a, (byte) TileIds.WALL, bits);
+            t = lap(nanos, 3, t, measured);
+            sink += k.diff(a, b, cells);
+            lap(nanos, 4, t, measured);
+        }
+        StringBuilder line = new StringBuilder(k.name() + "," + a.length);
+        for (long n : nanos) {
+            line.append(String.format(",%.3f", (double) n / rounds / a.length));
+        }
+        System.out.println(line);
+    }
+
+    private static long lap(long[] nanos, int kernel, long start, boolean measured) {
+        long now = System.nanoTime();
+        if (measured) {
+            nanos[kernel] += now - start;
+        }
+        return now;
+    }
+}
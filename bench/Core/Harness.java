@@ -0,0 +1,17 @@
+package Core;
+
+/**
+ * A check or benchmark run by {@link Bench}. Most harnesses first compare
+ * an optimized part of the game with a simple model of it and then time
+ * both, printing CSV lines as they go.
+ */
+interface Harness {
+    /**
+     * Runs the harness.
+     *
+     * @param args the arguments after the harness name.
+     * @return whether every check passed.
+     * @throws IllegalArgumentException if the arguments are malformed.
+     */
+    boolean run(String[] args) throws Exception;
+}
@@ -0,0 +1,104 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Random;
+
+/**
+ * Validates {@link RandomWalks} against {@link Game} and measures its
+ * throughput. Random move scripts are replayed through movePlayer and
+ * climbLadder, as playWithInput does, and must end on the same level and
+ * tile as the simulation. Then a batch of walks on one seed is timed on
+ * 1, 2, 4, ... threads up to the number of cores, and its hitting times
+ * and coverage are printed.
+ * <p>
+ * Usage: {@code java Core.Bench walks [walkers] [steps] [seed]}
+ */
+class RandomWalkBenchmark implements Harness {
+    private static final int CHECK_SEEDS = 20;
+    private static final int CHECK_SCRIPTS = 20;
+    private static final int CHECK_LENGTH = 2000;
+    private static final String MOVES = "wasd";
+
+    @Override
+    public boolean run(String[] args) {
+        int walkers = Bench.intArg(args, 0, 100_000);
+        int steps = Bench.intArg(args, 1, 2000);
+        int seed = Bench.intArg(args, 2, 1);
+
+        int mismatches = 0;
+        Random rand = new Random(0);
+        for (int s = 0; s < CHECK_SEEDS; s++) {
+            for (int i = 0; i < CHECK_SCRIPTS; i++) {
+                StringBuilder script = new StringBuilder();
+                for (int j = 0; j < CHECK_LENGTH; j++) {
+                    script.append(MOVES.charAt(rand.nextInt(MOVES.length())));
+                }
+                Game g = new Game();
+                g.startGame(s);
+                Tile[][] start = g.world();
+                int[] expected = new RandomWalks(g).trace(script);
+                for (int j = 0; j < script.length(); j++) {
+                    Game.movePlayer(g, g.world(), script.charAt(j));
+                    g.climbLadder();
+                }
+                int[] pos = g.playerPos();
+                if (expected[0] != (g.world() == start ? 0 : 1)
+                        || expected[1] != pos[0] || expected[2] != pos[1]) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("%d scripts replayed, %d mismatches%n",
+                          CHECK_SEEDS * CHECK_SCRIPTS, mismatches);
+
+        Game g = new Game();
+        g.startGame(seed);
+        RandomWalks walks = new RandomWalks(g);
+        walks.run(walkers / 10 + 1, steps, 0, 1, 10); // warm up
+        System.out.println("threads,walkers,steps,moves/s");
+        RandomWalks.Result result = null;
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            long t0 = System.nanoTime();
+            result = walks.run(walkers, steps, seed, threads, 20);
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("%d,%d,%d,%.0f%n", threads, walkers, steps,
+                              result.steps() / seconds);
+        }
+
+        System.out.printf("mean first climb %.1f moves, %.1f%% never climbed%n",
+                          result.meanHittingTime(), 100.0 * result.censored() / walkers);
+        long[] hist = result.hittingTimes();
+        for (int i = 0; i < hist.length; i++) {
+            System.out.printf("climbed in [%d, %d): %d%n", i * result.binWidth(),
+                              (i + 1) * result.binWidth(), hist[i]);
+        }
+        Tile[][][] levels = {g.world(), g.overworld()};
+        for (int level = 0; level < 2; level++) {
+            System.out.printf("level %d coverage %.1f%%%n", level,
+                              100.0 * coverage(levels[level], result.visits(level)));
+        }
+        return mismatches == 0;
+    }
+
+    /* The fraction of the walkable tiles of a level that any walker visited. */
+    private static double coverage(Tile[][] level, long[] visits) {
+        int walkable = 0;
+        int visited = 0;
+        int height = level[0].length;
+        for (int x = 0; x < level.length; x++) {
+            for (int y = 0; y < height; y++) {
+                if (level[x][y] != TileSet.WALL
+                        && level[x][y] != TileSet.NOTHING) {
+                    walkable++;
+                    if (visits[x * height + y] > 0) {
+                        visited++;
+                    }
+                }
+            }
+        }
+        return walkable == 0 ? 0.0 : (double) visited / walkable;
+    }
+}
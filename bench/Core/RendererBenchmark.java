@@ -0,0 +1,178 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compares {@link AtlasRenderer} with drawing every tile with a filled
+ * square and a glyph, as StdDraw does for {@link Tile#draw}. Viewports
+ * of growing size are tiled from generated worlds. Each renderer draws
+ * the same frames, in which the Player walks one step per frame, and the
+ * frames of both must be identical pixel for pixel. Full redraws, as
+ * after a new game or a climb, are timed separately.
+ * <p>
+ * Usage: {@code java -Djava.awt.headless=true Core.Bench renderer [frames]}
+ */
+class RendererBenchmark implements Harness {
+    public static final int DEFAULT_FRAMES = 200;
+    private static final int TILE_SIZE = 16;
+    /* Viewport sizes in levels across and down. */
+    private static final int[] SCALES = {1, 2, 4};
+
+    @Override
+    public boolean run(String[] args) {
+        int frames = Bench.intArg(args, 0, DEFAULT_FRAMES);
+        boolean identical = true;
+        System.out.println("viewport,primitives fps,atlas fps,atlas full-redraw fps");
+        for (int scale : SCALES) {
+            Tile[][] view = viewport(scale);
+            int width = view.length;
+            int height = view[0].length;
+            AtlasRenderer atlas = new AtlasRenderer(width, height, TILE_SIZE);
+            BufferedImage direct = new BufferedImage(width * TILE_SIZE, height * TILE_SIZE,
+                                                     BufferedImage.TYPE_INT_RGB);
+            Font font = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
+
+            /* The Player walks right along the row it starts on. */
+            int[] pos = start(view);
+            long directNanos = 0;
+            long atlasNanos = 0;
+            for (int f = 0; f < frames; f++) {
+                step(view, pos);
+                long t0 = System.nanoTime();
+                drawDirect(direct, view, font);
+                long t1 = System.nanoTime();
+                BufferedImage composed = atlas.renderFrame(view);
+                long t2 = System.nanoTime();
+                directNanos += t1 - t0;
+                atlasNanos += t2 - t1;
+                if (f == 0 || f == frames - 1) {
+                    identical &= samePixels(direct, composed);
+                }
+            }
+            long fullNanos = 0;
+            for (int f = 0; f < frames; f++) {
+                long t0 = System.nanoTime();
+                atlas.invalidate();
+                atlas.renderFrame(view);
+                fullNanos += System.nanoTime() - t0;
+            }
+            System.out.printf("%dx%d,%.0f,%.0f,%.0f%n", width, height, frames * 1e9 / directNanos,
+                              frames * 1e9 / atlasNanos, frames * 1e9 / fullNanos);
+
+            /* Loading a game brings copies of the tiles, which must reuse
+               the sprites of the originals. */
+            int sprites = atlas.sprites();
+            for (int load = 0; load < 3; load++) {
+                Tile[][] loaded = copy(view);
+                drawDirect(direct, loaded, font);
+                identical &= samePixels(direct, atlas.renderFrame(loaded));
+            }
+            sprites = atlas.sprites() - sprites;
+            if (sprites != 0) {
+                System.out.println("loaded tiles added " + sprites + " sprites");
+                identical = false;
+            }
+        }
+        System.out.println(identical ? "frames identical" : "frames differ");
+        return identical;
+    }
+
+    /* Copies a level through serialization, as loading a save does. */
+    private static Tile[][] copy(Tile[][] view) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(view);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (Tile[][]) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* Tiles a viewport of scale x scale levels of different seeds. */
+    private static Tile[][] viewport(int scale) {
+        Tile[][] view = new Tile[Game.WIDTH * scale][Game.HEIGHT * scale];
+        for (int i = 0; i < scale; i++) {
+            for (int j = 0; j < scale; j++) {
+                Game g = new Game();
+                Game.genRandomWorld(g, i * scale + j);
+                Tile[][] world = g.world();
+                for (int x = 0; x < Game.WIDTH; x++) {
+                    System.arraycopy(world[x], 0, view[i * Game.WIDTH + x], j * Game.HEIGHT,
+                                     Game.HEIGHT);
+                }
+            }
+        }
+        return view;
+    }
+
+    private static int[] start(Tile[][] view) {
+        for (int x = 0; x < view.length; x++) {
+            for (int y = 0; y < view[0].length; y++) {
+                if (view[x][y] == TileSet.PLAYER) {
+                    return new int[]{x, y};
+                }
+            }
+        }
+        return new int[]{0, 0};
+    }
+
+    /* Moves the Player one tile right if that tile is floor. */
+    private static void step(Tile[][] view, int[] pos) {
+        int x = pos[0];
+        int y = pos[1];
+        int next = x + 1 < view.length && view[x + 1][y] == TileSet.FLOOR ? x + 1 : -1;
+        if (next < 0) {
+            return;
+        }
+        view[x][y] = TileSet.FLOOR;
+        view[next][y] = TileSet.PLAYER;
+        pos[0] = next;
+    }
+
+    /* Draws every tile with a filled square and a glyph. */
+    private static void drawDirect(BufferedImage image, Tile[][] view, Font font) {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        int height = view[0].length;
+        for (int x = 0; x < view.length; x++) {
+            for (int y = 0; y < height; y++) {
+                Tile t = view[x][y];
+                int left = x * TILE_SIZE;
+                int top = (height - 1 - y) * TILE_SIZE;
+                g.setColor(t.backgroundColor());
+                g.fillRect(left, top, TILE_SIZE, TILE_SIZE);
+                g.setColor(t.textColor());
+                String s = String.valueOf(t.character());
+                g.drawString(s, (float) (left + TILE_SIZE / 2.0 - metrics.stringWidth(s) / 2.0),
+                             (float) (top + TILE_SIZE / 2.0 + metrics.getDescent()));
+            }
+        }
+        g.dispose();
+    }
+
+    private static boolean samePixels(BufferedImage a, BufferedImage b) {
+        int[] pa = a.getRGB(0, 0, a.getWidth(), a.getHeight(), null, 0, a.getWidth());
+        int[] pb = b.getRGB(0, 0, b.getWidth(), b.getHeight(), null, 0, b.getWidth());
+        return Arrays.equals(pa, pb);
+    }
+}
@@ -0,0 +1,140 @@
+package Core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Validates the samplers in {@link Samplers} and times them against the
+ * matching methods in {@link RandomUtils}. Each distribution is checked
+ * with a Kolmogorov-Smirnov statistic against its exact CDF; a statistic
+ * above the 0.1% critical value fails the run.
+ * <p>
+ * Usage: {@code java Core.Bench samplers [draws]}
+ */
+class SamplerBenchmark implements Harness {
+    public static final int DEFAULT_DRAWS = 1_000_000;
+    /* Kolmogorov-Smirnov critical value at the 0.1% level, times sqrt(n). */
+    private static final double KS_CRITICAL = 1.95;
+    /* Kept in a field so the JIT cannot drop the timed loops. */
+    private static volatile double sink;
+
+    @Override
+    public boolean run(String[] args) {
+        int draws = Bench.intArg(args, 0, DEFAULT_DRAWS);
+        Random random = new Random(1);
+        double[] d = new double[draws];
+        int[] k = new int[draws];
+        boolean ok = true;
+
+        Samplers.fillGaussian(random, d, 0.0, 1.0);
+        ok &= report("gaussian", ksContinuous(d, SamplerBenchmark::normalCdf), draws);
+        Samplers.fillExp(random, d, 2.0);
+        ok &= report("exp(2)", ksContinuous(d, x -> -Math.expm1(-2.0 * x)), draws);
+        Samplers.fillGeometric(random, k, 0.2);
+        ok &= report("geometric(0.2)",
+                     ksDiscrete(k, n -> n < 1 ? 0.0 : -Math.expm1(n * Math.log1p(-0.2))), draws);
+        for (double lambda : new double[]{3.0, 10.0, 40.0, 1000.0}) {
+            Samplers.fillPoisson(random, k, lambda);
+            ok &= report("poisson(" + lambda + ")", ksDiscrete(k, poissonCdf(lambda)), draws);
+        }
+
+        System.out.println();
+        System.out.println("sampler,RandomUtils ns,Samplers ns");
+        time("gaussian", draws, () -> RandomUtils.gaussian(random),
+             () -> Samplers.gaussian(random));
+        time("exp", draws, () -> RandomUtils.exp(random, 2.0),
+             () -> Samplers.exp(random, 2.0));
+        time("geometric", draws, () -> RandomUtils.geometric(random, 0.2),
+             () -> Samplers.geometric(random, 0.2));
+        time("pareto", draws, () -> RandomUtils.pareto(random, 3.0),
+             () -> Samplers.pareto(random, 3.0));
+        /* Knuth's method in RandomUtils is O(lambda) and underflows above about 700. */
+        for (double lambda : new double[]{3.0, 40.0, 200.0}) {
+            time("poisson(" + lambda + ")", draws, () -> RandomUtils.poisson(random, lambda),
+                 () -> Samplers.poisson(random, lambda));
+        }
+        return ok;
+    }
+
+    private interface Cdf {
+        double at(double x);
+    }
+
+    private interface Draw {
+        double next();
+    }
+
+    private static boolean report(String name, double ks, int draws) {
+        double scaled = ks * Math.sqrt(draws);
+        boolean pass = scaled < KS_CRITICAL;
+        System.out.printf("%-16s KS*sqrt(n) = %.3f %s%n", name, scaled, pass ? "ok" : "FAIL");
+        return pass;
+    }
+
+    private static double ksContinuous(double[] sample, Cdf cdf) {
+        double[] s = sample.clone();
+        Arrays.sort(s);
+        double n = s.length;
+        double max = 0.0;
+        for (int i = 0; i < s.length; i++) {
+            double f = cdf.at(s[i]);
+            max = Math.max(max, Math.max(f - i / n, (i + 1) / n - f));
+        }
+        return max;
+    }
+
+    /* For integer samples the statistic is only taken at the support points. */
+    private static double ksDiscrete(int[] sample, Cdf cdf) {
+        int[] s = sample.clone();
+        Arrays.sort(s);
+        double n = s.length;
+        double max = 0.0;
+        for (int i = 0; i < s.length; i++) {
+            if (i + 1 == s.length || s[i + 1] != s[i]) {
+                max = Math.max(max, Math.abs((i + 1) / n - cdf.at(s[i])));
+            }
+        }
+        return max;
+    }
+
+    private static Cdf poissonCdf(double lambda) {
+        return x -> {
+            double sum = 0.0;
+            for (int j = 0; j <= (int) x; j++) {
+                sum += Math.exp(-lambda + j * Math.log(lambda) - Samplers.logFactorial(j));
+            }
+            return sum;
+        };
+    }
+
+    /* Standard normal CDF from a high precision erfc approximation
+       (Numerical Recipes erfcc, relative error below 1.2e-7). */
+    private static double normalCdf(double x) {
+        double z = Math.abs(x) / Math.sqrt(2.0);
+        double t = 1.0 / (1.0 + 0.5 * z);
+        double erfc = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196
+                + t * (0.09678418 + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398
+                + t * (1.48851587 + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? 1.0 - 0.5 * erfc : 0.5 * erfc;
+    }
+
+    private static void time(String name, int draws, Draw before, Draw after) {
+        for (int r = 0; r < 3; r++) { // the last round is the measured one
+            double acc = 0.0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < draws; i++) {
+                acc += before.next();
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < draws; i++) {
+                acc += after.next();
+            }
+            long t2 = System.nanoTime();
+            sink = acc;
+            if (r == 2) {
+                System.out.printf("%s,%.1f,%.1f%n", name, (double) (t1 - t0) / draws,
+                                  (double) (t2 - t1) / draws);
+            }
+        }
+    }
+}
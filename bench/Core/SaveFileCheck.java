@@ -0,0 +1,145 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Checks that a saved game, by default the checked-in ./game.ser, still
+ * loads into the current Game class. Saves written before fields were
+ * added to Game must load with those fields at their defaults, and with
+ * the game's own tile instances, so that the floors and regions indexed
+ * from a loaded level match a count by tile id. The loaded game is then
+ * played: fog of war is turned on and must hide what it hides on the
+ * freshly made level, the Player moves, and the game is saved and loaded
+ * again.
+ * <p>
+ * Usage: {@code java Core.Bench savefile [file]}
+ */
+class SaveFileCheck implements Harness {
+    public static final String DEFAULT_FILE = "./game.ser";
+
+    @Override
+    public boolean run(String[] args) throws IOException, ClassNotFoundException {
+        String file = args.length > 0 ? args[0] : DEFAULT_FILE;
+        Game g;
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+            g = (Game) in.readObject();
+        }
+        boolean ok = isLevel(g.world()) && isLevel(g.overworld());
+        int[] player = g.playerPos();
+        ok = ok && g.world()[player[0]][player[1]] == TileSet.PLAYER;
+        System.out.printf("%s: seed %d, Player at (%d, %d)%n", file, g.seed(), player[0],
+                          player[1]);
+        ok &= indexed("world", g.world());
+        ok &= indexed("overworld", g.overworld());
+
+        g.setFogOfWar(true);
+        ok &= isLevel(g.visibleWorld());
+        ok &= seesAsCanonical(g.world(), player);
+        for (char k : "wasd".toCharArray()) {
+            Game.movePlayer(g, g.world(), k);
+        }
+        ok &= isLevel(g.visibleWorld());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(g);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            ok &= ((Game) in.readObject()).stateHash() == g.stateHash();
+        }
+        System.out.println(ok ? "save loads and plays" : "save is broken");
+        return ok;
+    }
+
+    private static boolean isLevel(Tile[][] level) {
+        return level != null && level.length == Game.WIDTH && level[0].length == Game.HEIGHT;
+    }
+
+    /* Compares what the Player sees on a loaded level with what they see
+       on the same level made of the TileSet instances. Walls of copied
+       tiles must block sight like the game's own walls. */
+    private static boolean seesAsCanonical(Tile[][] level, int[] player) {
+        Tile[][] canonical = new Tile[Game.WIDTH][Game.HEIGHT];
+        for (int x = 0; x < Game.WIDTH; x++) {
+            for (int y = 0; y < Game.HEIGHT; y++) {
+                canonical[x][y] = TileIds.tile(TileIds.of(level[x][y]));
+            }
+        }
+        int seen = visible(level, player);
+        int expected = visible(canonical, player);
+        System.out.printf("fog: %d tiles in view, %d with the TileSet tiles%n", seen, expected);
+        return seen == expected;
+    }
+
+    private static int visible(Tile[][] level, int[] player) {
+        FieldOfView view = new FieldOfView(Game.WIDTH, Game.HEIGHT, Game.SIGHT_RADIUS);
+        view.compute(level, player[0], player[1],
+                     new long[FieldOfView.words(Game.WIDTH, Game.HEIGHT)]);
+        int n = 0;
+        for (int x = 0; x < Game.WIDTH; x++) {
+            for (int y = 0; y < Game.HEIGHT; y++) {
+                n += view.isVisible(x, y) ? 1 : 0;
+            }
+        }
+        return n;
+    }
+
+    /* Compares the floors and regions the game indexes in a level with
+       a count by tile id and a flood fill. */
+    private static boolean indexed(String name, Tile[][] level) {
+        LevelIndex index = LevelIndex.of(level);
+        int floors = 0;
+        int misread = 0;
+        boolean[] open = new boolean[Game.WIDTH * Game.HEIGHT];
+        for (int x = 0; x < Game.WIDTH; x++) {
+            for (int y = 0; y < Game.HEIGHT; y++) {
+                int id = TileIds.of(level[x][y]);
+                floors += id == TileIds.FLOOR ? 1 : 0;
+                open[x * Game.HEIGHT + y] = id != TileIds.WALL && id != TileIds.NOTHING;
+                misread += index.regions().isOpen(x, y) != open[x * Game.HEIGHT + y] ? 1 : 0;
+            }
+        }
+        int regions = 0;
+        int[] stack = new int[open.length];
+        for (int start = 0; start < open.length; start++) {
+            if (!open[start]) {
+                continue;
+            }
+            regions++;
+            open[start] = false;
+            int n = 0;
+            stack[n++] = start;
+            while (n > 0) {
+                int p = stack[--n];
+                int x = p / Game.HEIGHT;
+                int y = p % Game.HEIGHT;
+                int[] next = {x > 0 ? p - Game.HEIGHT : -1,
+                              x < Game.WIDTH - 1 ? p + Game.HEIGHT : -1,
+                              y > 0 ? p - 1 : -1,
+                              y < Game.HEIGHT - 1 ? p + 1 : -1};
+                for (int q : next) {
+                    if (q >= 0 && open[q]) {
+                        open[q] = false;
+                        stack[n++] = q;
+                    }
+                }
+            }
+        }
+        int indexedFloors = index.floors().size();
+        int indexedRegions = index.regions().regionCount();
+        System.out.printf("%s: %d floors, %d regions; indexed %d floors, %d regions, "
+                          + "%d cells misread%n", name, floors, regions, indexedFloors,
+                          indexedRegions, misread);
+        return floors > 0 && indexedFloors == floors && indexedRegions == regions
+                && misread == 0;
+    }
+}
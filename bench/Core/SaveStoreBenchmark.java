@@ -0,0 +1,161 @@
+package Core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Checks {@link SaveStore} against an in-memory map and measures it. The
+ * check runs random saves, deletes, loads, compactions and reopens, and
+ * appends garbage to the newest segment before some reopens, as a crash
+ * in the middle of a write would leave it. The benchmark then saves many
+ * sessions, overwrites them, loads them at random, reopens the store and
+ * compacts it.
+ * <p>
+ * Usage: {@code java Core.Bench saves [sessions] [dir]}
+ */
+class SaveStoreBenchmark implements Harness {
+    public static final int DEFAULT_SESSIONS = 1_000_000;
+    private static final int CHECK_OPS = 200_000;
+    private static final int CHECK_SLOTS = 5_000;
+    private static final int RECORD_BYTES = 100;
+
+    @Override
+    public boolean run(String[] args) throws IOException, ClassNotFoundException {
+        int sessions = Bench.intArg(args, 0, DEFAULT_SESSIONS);
+        Path dir = args.length > 1 ? Path.of(args[1]) : Files.createTempDirectory("saves");
+
+        boolean ok = check(dir.resolve("check"));
+        System.out.println(ok ? "store matches model" : "store differs from model");
+
+        Path bench = dir.resolve("bench");
+        Random rand = new Random(1);
+        byte[] data = new byte[RECORD_BYTES];
+        SaveStore store = SaveStore.open(bench);
+        long t0 = System.nanoTime();
+        for (int s = 0; s < sessions; s++) {
+            rand.nextBytes(data);
+            store.put(s, data);
+        }
+        store.sync();
+        long t1 = System.nanoTime();
+        for (int s = 0; s < sessions; s++) {
+            rand.nextBytes(data);
+            store.put(rand.nextInt(sessions), data);
+        }
+        store.sync();
+        long t2 = System.nanoTime();
+        for (int s = 0; s < sessions; s++) {
+            store.get(rand.nextInt(sessions));
+        }
+        long t3 = System.nanoTime();
+        store.close();
+        store = SaveStore.open(bench);
+        long t4 = System.nanoTime();
+        long before = directorySize(bench);
+        store.compact();
+        long t5 = System.nanoTime();
+        long after = directorySize(bench);
+
+        Game g = new Game();
+        g.playWithInput("n42sddddwwww");
+        Game.saveGame(g, store, -1);
+        Game loaded = Game.loadGame(store, -1);
+        ok &= loaded != null && loaded.stateHash() == g.stateHash();
+        store.close();
+
+        System.out.printf("%d sessions of %d bytes%n", sessions, RECORD_BYTES);
+        System.out.printf("first saves %.0f/s, overwrites %.0f/s, random loads %.0f/s%n",
+                          sessions / ((t1 - t0) / 1e9), sessions / ((t2 - t1) / 1e9),
+                          sessions / ((t3 - t2) / 1e9));
+        System.out.printf("reopen %.0f ms, compaction %.0f ms, %.1f MB -> %.1f MB%n",
+                          (t4 - t3) / 1e6, (t5 - t4) / 1e6, before / 1e6, after / 1e6);
+        System.out.println(ok ? "game round trip ok" : "game round trip failed");
+        return ok;
+    }
+
+    /* Runs random operations on a store and a map and compares them. */
+    private static boolean check(Path dir) throws IOException {
+        Random rand = new Random(0);
+        Map<Long, byte[]> model = new HashMap<>();
+        SaveStore store = SaveStore.open(dir, 16);
+        boolean ok = true;
+        for (int op = 0; op < CHECK_OPS; op++) {
+            long slot = rand.nextInt(CHECK_SLOTS) - CHECK_SLOTS / 2;
+            int kind = rand.nextInt(1000);
+            if (kind < 600) {
+                byte[] data = new byte[rand.nextInt(600)];
+                rand.nextBytes(data);
+                store.put(slot, data);
+                model.put(slot, data);
+            } else if (kind < 700) {
+                ok &= store.delete(slot) == (model.remove(slot) != null);
+            } else if (kind < 995) {
+                ok &= Arrays.equals(store.get(slot), model.get(slot));
+            } else if (kind < 997) {
+                store.compact();
+            } else {
+                store.close();
+                if (rand.nextBoolean()) {
+                    tearNewestSegment(dir, rand);
+                }
+                store = SaveStore.open(dir, 16);
+            }
+        }
+        ok &= store.size() == model.size();
+        for (long slot = -CHECK_SLOTS / 2; slot < CHECK_SLOTS / 2; slot++) {
+            ok &= Arrays.equals(store.get(slot), model.get(slot));
+        }
+        /* A second open, even from this JVM, must be refused cleanly. */
+        for (int i = 0; i < 2; i++) {
+            try {
+                SaveStore.open(dir).close();
+                ok = false;
+            } catch (IOException e) {
+                continue;
+            }
+        }
+        store.close();
+        SaveStore.open(dir).close();
+        return ok;
+    }
+
+    /* Appends the start of a record that was never finished. */
+    private static void tearNewestSegment(Path dir, Random rand) throws IOException {
+        Path newest = null;
+        int newestNumber = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "segment-*.log")) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                int number = Integer.parseInt(name.substring(8, name.length() - 4));
+                if (number > newestNumber) {
+                    newestNumber = number;
+                    newest = p;
+                }
+            }
+        }
+        byte[] garbage = new byte[1 + rand.nextInt(40)];
+        rand.nextBytes(garbage);
+        Files.write(newest, garbage, StandardOpenOption.APPEND);
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(p -> {
+                try {
+                    return Files.size(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package Core;
+
+import TileEngine.Tile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Checks that planned playWithInput runs match running every command as
+ * typed, and measures the time planning saves. Random scripts of new
+ * games, loads, moves, stray characters and quits are run both ways on
+ * fresh games. The returned worlds, the game states and the saved games
+ * must be identical.
+ * <p>
+ * Both runs of a script start from the same saved game, which "l" and
+ * ":q" use. It is kept in a SaveStore in a temporary directory, set as
+ * -Dabyss.saves before Game is loaded, so ./game.ser is never touched.
+ * <p>
+ * Usage: {@code java Core.Bench scripts [scripts] [seed]}
+ */
+class ScriptBenchmark implements Harness {
+    public static final int DEFAULT_SCRIPTS = 300;
+    private static final long SLOT = 0L;
+
+    @Override
+    public boolean run(String[] args) throws IOException {
+        int scripts = Bench.intArg(args, 0, DEFAULT_SCRIPTS);
+        long seed = Bench.longArg(args, 1, 0L);
+        Random rand = new Random(seed);
+        Path saves = Files.createTempDirectory("scripts");
+        System.setProperty("abyss.saves", saves.toString());
+        System.setProperty("abyss.slot", Long.toString(SLOT));
+
+        Game saved = new Game();
+        saved.playWithInput("n4242sddddwwww");
+        byte[] save = serialize(saved);
+
+        long typedNanos = 0;
+        long plannedNanos = 0;
+        int mismatches = 0;
+        for (int i = 0; i < scripts; i++) {
+            String script = randomScript(rand);
+
+            write(saves, save);
+            Game typed = new Game();
+            long t0 = System.nanoTime();
+            String typedWorld = run(() -> Tile.toString(typed.playAll(script)));
+            typedNanos += System.nanoTime() - t0;
+            byte[] typedSave = read(saves);
+
+            write(saves, save);
+            Game planned = new Game();
+            long t1 = System.nanoTime();
+            String plannedWorld = run(() -> Tile.toString(planned.playWithInput(script)));
+            plannedNanos += System.nanoTime() - t1;
+            byte[] plannedSave = read(saves);
+
+            if (!typedWorld.equals(plannedWorld) || !Arrays.equals(typedSave, plannedSave)
+                    || (typed.world() != null && typed.stateHash() != planned.stateHash())
+                    || !Arrays.equals(serialize(typed), serialize(planned))) {
+                System.out.println("mismatch: " + script);
+                mismatches++;
+            }
+        }
+        deleteStore(saves);
+        System.out.printf("%d scripts, %d mismatches%n", scripts, mismatches);
+        System.out.printf("as typed %.1f ms, planned %.1f ms (%.2fx)%n", typedNanos / 1e6,
+                          plannedNanos / 1e6, (double) plannedNanos / typedNanos);
+        return mismatches == 0;
+    }
+
+    /* Runs a script, turning an exception into its class name so that
+       failing scripts must fail the same way. */
+    private static String run(Supplier<String> script) {
+        try {
+            return script.get();
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static void write(Path saves, byte[] save) throws IOException {
+        try (SaveStore store = SaveStore.open(saves)) {
+            store.put(SLOT, save);
+        }
+    }
+
+    private static byte[] read(Path saves) throws IOException {
+        try (SaveStore store = SaveStore.open(saves)) {
+            return store.get(SLOT);
+        }
+    }
+
+    private static void deleteStore(Path saves) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(saves)) {
+            for (Path p : files) {
+                Files.delete(p);
+            }
+        }
+        Files.delete(saves);
+    }
+
+    private static byte[] serialize(Game g) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream os = new ObjectOutputStream(bytes)) {
+            os.writeObject(g);
+        }
+        return bytes.toByteArray();
+    }
+
+    /* A script of random commands, mostly well-formed. Seeds are short
+       because they accumulate over the script. */
+    private static String randomScript(Random rand) {
+        StringBuilder sb = new StringBuilder();
+        int commands = 1 + rand.nextInt(8);
+        for (int i = 0; i < commands; i++) {
+            int kind = rand.nextInt(20);
+            if (kind < 7) {
+                sb.append('n').append(rand.nextInt(10)).append('s');
+            } else if (kind < 10) {
+                sb.append('l');
+            } else if (kind < 17) {
+                int moves = rand.nextInt(60);
+                for (int j = 0; j < moves; j++) {
+                    sb.append("wasd".charAt(rand.nextInt(4)));
+                }
+            } else if (kind < 18) {
+                sb.append(":q");
+            } else {
+                sb.append(":xk".charAt(rand.nextInt(3)));
+            }
+        }
+        if (rand.nextInt(10) == 0) {
+            sb.append('n'); // an unfinished seed
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures how shared-world ticks scale with threads. Actors random-walk
+ * on an arena tiled from generated levels, and each tick is run on a pool
+ * of 1, 2, 4, ... threads up to the number of cores. After every run the
+ * last snapshot is checked: no two actors may share a tile and every
+ * actor must stand on walkable ground.
+ * <p>
+ * Usage: {@code java Core.Bench shared [actors] [ticks]}
+ */
+class SharedWorldBenchmark implements Harness {
+    /* The arena is this many levels wide and tall. */
+    private static final int TILING = 8;
+    private static final String MOVES = "wasd";
+
+    @Override
+    public boolean run(String[] args) {
+        int actors = Bench.intArg(args, 0, 4000);
+        int ticks = Bench.intArg(args, 1, 2000);
+        Tile[][] arena = arena();
+        SharedWorld.Controller walk = (actor, world) ->
+                MOVES.charAt(ThreadLocalRandom.current().nextInt(MOVES.length()));
+
+        System.out.println("threads,actors,ticks,moves/s");
+        int cores = Runtime.getRuntime().availableProcessors();
+        boolean ok = true;
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            SharedWorld world = new SharedWorld(arena, actors);
+            Random rand = new Random(threads);
+            for (int a = 0; a < actors; a++) {
+                world.spawn(rand, TileSet.PLAYER);
+            }
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.submit(() -> {
+                    for (int t = 0; t < ticks / 4; t++) { // warm up
+                        world.tick(walk);
+                    }
+                }).join();
+                long start = System.nanoTime();
+                pool.submit(() -> {
+                    for (int t = 0; t < ticks; t++) {
+                        world.tick(walk);
+                    }
+                }).join();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%d,%d,%d,%.0f%n", threads, world.actors(), ticks,
+                                  (double) world.actors() * ticks / seconds);
+            } finally {
+                pool.shutdown();
+            }
+            ok &= consistent(world);
+        }
+        if (!ok) {
+            System.out.println("snapshot inconsistent");
+        }
+        return ok;
+    }
+
+    /* Tiles generated levels into one large arena. */
+    private static Tile[][] arena() {
+        Tile[][] arena = new Tile[Game.WIDTH * TILING][Game.HEIGHT * TILING];
+        for (int i = 0; i < TILING * TILING; i++) {
+            Game g = new Game();
+            Game.genRandomWorld(g, i);
+            Tile[][] level = g.world();
+            int ox = (i % TILING) * Game.WIDTH;
+            int oy = (i / TILING) * Game.HEIGHT;
+            for (int x = 0; x < Game.WIDTH; x++) {
+                System.arraycopy(level[x], 0, arena[ox + x], oy, Game.HEIGHT);
+            }
+        }
+        return arena;
+    }
+
+    private static boolean consistent(SharedWorld world) {
+        SharedWorld.Snapshot snap = world.snapshot();
+        boolean[] taken = new boolean[Game.WIDTH * TILING * Game.HEIGHT * TILING];
+        for (int a = 0; a < snap.actors(); a++) {
+            int[] p = snap.position(a);
+            int cell = p[0] * Game.HEIGHT * TILING + p[1];
+            if (taken[cell] || !world.isWalkable(p[0], p[1])) {
+                return false;
+            }
+            taken[cell] = true;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+package Core;
+
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Validates the batched shuffles and Feistel permutations and times them
+ * against {@link RandomUtils#shuffle(Random, int[])}. Shuffles of five
+ * elements must hit all 120 orderings evenly (chi-square at the 0.1%
+ * level), and lazy permutations must visit every index exactly once.
+ * <p>
+ * Usage: {@code java Core.Bench shuffles}
+ */
+class ShuffleBenchmark implements Harness {
+    /* Chi-square critical value for 119 degrees of freedom at 0.1%. */
+    private static final double CHI2_CRITICAL = 173.6;
+    private static final int[] SIZES = {Game.WIDTH * Game.HEIGHT, 1 << 20};
+    /* Kept in a field so the JIT cannot drop the timed loops. */
+    private static volatile long sink;
+
+    @Override
+    public boolean run(String[] args) {
+        boolean ok = true;
+        ok &= report("shuffle(Random)", chiSquare(new Random(1)));
+        ok &= report("shuffle(SplittableRandom)", chiSquare(new SplittableRandom(1)));
+        for (long n : new long[]{0, 1, 2, 3, 17, 1000, Game.WIDTH * Game.HEIGHT, 1 << 20}) {
+            ok &= report("lazyPermutation(" + n + ")", bijective(n));
+        }
+
+        System.out.println();
+        System.out.println("n,RandomUtils ns/elem,Shuffles(Random) ns/elem,"
+                           + "Shuffles(SplittableRandom) ns/elem,lazy ns/elem");
+        for (int n : SIZES) {
+            int[] a = Shuffles.permutation(new SplittableRandom(2), n);
+            Random random = new Random(3);
+            SplittableRandom split = new SplittableRandom(3);
+            FeistelPermutation lazy = Shuffles.lazyPermutation(split, n);
+            double[] ns = new double[4];
+            int rounds = Math.max(5, (1 << 24) / n);
+            for (int warm = 0; warm < 2; warm++) { // the second pass is measured
+                long t0 = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    RandomUtils.shuffle(random, a);
+                }
+                long t1 = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    Shuffles.shuffle(random, a);
+                }
+                long t2 = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    Shuffles.shuffle(split, a);
+                }
+                long t3 = System.nanoTime();
+                long acc = 0;
+                for (int r = 0; r < rounds; r++) {
+                    PrimitiveIterator.OfLong it = lazy.iterator();
+                    while (it.hasNext()) {
+                        acc += it.nextLong();
+                    }
+                }
+                long t4 = System.nanoTime();
+                sink = acc + a[0];
+                double per = (double) rounds * n;
+                ns[0] = (t1 - t0) / per;
+                ns[1] = (t2 - t1) / per;
+                ns[2] = (t3 - t2) / per;
+                ns[3] = (t4 - t3) / per;
+            }
+            System.out.printf("%d,%.2f,%.2f,%.2f,%.2f%n", n, ns[0], ns[1], ns[2], ns[3]);
+        }
+        return ok;
+    }
+
+    private static boolean report(String name, boolean pass) {
+        System.out.printf("%-28s %s%n", name, pass ? "ok" : "FAIL");
+        return pass;
+    }
+
+    /* Shuffles five elements many times and tests the ordering counts. */
+    private static boolean chiSquare(RandomGenerator rng) {
+        int trials = 1_200_000;
+        int[] counts = new int[3125];
+        int[] a = new int[5];
+        for (int t = 0; t < trials; t++) {
+            for (int i = 0; i < a.length; i++) {
+                a[i] = i;
+            }
+            Shuffles.shuffle(rng, a);
+            int code = 0;
+            for (int v : a) {
+                code = code * 5 + v;
+            }
+            counts[code]++;
+        }
+        double expected = trials / 120.0;
+        double chi2 = 0.0;
+        int seen = 0;
+        for (int c : counts) {
+            if (c > 0) {
+                seen++;
+                chi2 += (c - expected) * (c - expected) / expected;
+            }
+        }
+        return seen == 120 && chi2 < CHI2_CRITICAL;
+    }
+
+    /* Checks that a lazy permutation visits each index of [0, n) once. */
+    private static boolean bijective(long n) {
+        FeistelPermutation p = new FeistelPermutation(n, n * 31 + 7);
+        BitSet seen = new BitSet();
+        PrimitiveIterator.OfLong it = p.iterator();
+        long count = 0;
+        while (it.hasNext()) {
+            long v = it.nextLong();
+            if (v < 0 || v >= n || seen.get((int) v)) {
+                return false;
+            }
+            seen.set((int) v);
+            count++;
+        }
+        return count == n;
+    }
+}
@@ -0,0 +1,90 @@
+package Core;
+
+import java.util.Arrays;
+
+/**
+ * Checks that speculative placement builds the same levels as placing
+ * systems one at a time, and times both. For every seed and batch size
+ * the world and overworld are generated by both generators, and the
+ * levels, the game state hash and the placement counts must be equal.
+ * <p>
+ * Usage: {@code java Core.Bench speculative [seeds] [batch...]}
+ */
+class SpeculativeBenchmark implements Harness {
+    public static final int DEFAULT_SEEDS = 300;
+    private static final int[] DEFAULT_BATCHES = {16, 64, 256};
+    /* Seeds generated before measuring, so timings exclude JIT warm-up. */
+    private static final int WARMUP_SEEDS = 50;
+
+    @Override
+    public boolean run(String[] args) {
+        int seeds = Bench.intArg(args, 0, DEFAULT_SEEDS);
+        int[] batches = DEFAULT_BATCHES;
+        if (args.length > 1) {
+            batches = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                batches[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.printf("%d threads%n", Runtime.getRuntime().availableProcessors());
+        System.out.println("generator,msPerGame");
+
+        WorldGenerator serial = new RoomHallGenerator();
+        for (int s = 0; s < WARMUP_SEEDS; s++) {
+            generate(serial, -1 - s);
+        }
+        long serialNanos = 0;
+        Game[] expected = new Game[seeds];
+        for (int s = 0; s < seeds; s++) {
+            long t0 = System.nanoTime();
+            expected[s] = generate(serial, s);
+            serialNanos += System.nanoTime() - t0;
+        }
+        System.out.printf("rooms,%.3f%n", serialNanos / 1e6 / seeds);
+
+        long mismatches = 0;
+        for (int batch : batches) {
+            WorldGenerator speculative = new RoomHallGenerator(batch);
+            for (int s = 0; s < WARMUP_SEEDS; s++) {
+                generate(speculative, -1 - s);
+            }
+            long nanos = 0;
+            for (int s = 0; s < seeds; s++) {
+                long t0 = System.nanoTime();
+                Game g = generate(speculative, s);
+                nanos += System.nanoTime() - t0;
+                if (!same(expected[s], g)) {
+                    System.out.printf("batch %d differs at seed %d%n", batch, s);
+                    mismatches++;
+                }
+            }
+            System.out.printf("speculative %d,%.3f%n", batch, nanos / 1e6 / seeds);
+        }
+        System.out.printf("%d mismatches%n", mismatches);
+        return mismatches == 0;
+    }
+
+    /* Generates both levels of a seed with a generator. */
+    private static Game generate(WorldGenerator generator, int seed) {
+        Game g = new Game();
+        g.setRecordMetrics(true);
+        g.setGenerators(generator, generator);
+        Game.genRandomWorld(g, seed, generator);
+        Game.genRandomOverworld(g, seed ^ 1, generator);
+        return g;
+    }
+
+    private static boolean same(Game a, Game b) {
+        return Arrays.deepEquals(a.world(), b.world())
+                && Arrays.deepEquals(a.overworld(), b.overworld())
+                && a.stateHash() == b.stateHash()
+                && counts(a.worldMetrics()).equals(counts(b.worldMetrics()))
+                && counts(a.overworldMetrics()).equals(counts(b.overworldMetrics()));
+    }
+
+    /* The placement counts of a level, without its timings. */
+    private static String counts(GenMetrics m) {
+        return m.attempts() + "," + m.accepted() + "," + m.roomRejected() + ","
+                + m.hallRejected() + "," + m.connectionRejected();
+    }
+}
@@ -0,0 +1,139 @@
+package Core;
+
+import TileEngine.Tile;
+import TileEngine.TileSet;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Validates and times the structure index. For every seed, each
+ * walkable tile must lie in a recorded structure, and point, rectangle
+ * and nearest queries must agree with a linear scan over all structures.
+ * The mean query times of the index and of the linear scan are printed.
+ * <p>
+ * Usage: {@code java Core.Bench structures [seeds] [generator...]}
+ */
+class StructureBenchmark implements Harness {
+    public static final int DEFAULT_SEEDS = 200;
+    private static final int QUERIES = 2000;
+    /* Kept in a field so the JIT cannot drop the timed loops. */
+    private static volatile int sink;
+
+    @Override
+    public boolean run(String[] args) {
+        int seeds = Bench.intArg(args, 0, DEFAULT_SEEDS);
+        String[] names = args.length > 1
+                ? Arrays.copyOfRange(args, 1, args.length)
+                : new String[]{"rooms", "bsp"};
+        boolean ok = true;
+
+        System.out.println("generator,structures,indexNs,scanNs,errors");
+        for (String name : names) {
+            WorldGenerator generator = WorldGenerator.forName(name);
+            long structures = 0;
+            long indexNanos = 0;
+            long scanNanos = 0;
+            int errors = 0;
+            for (int s = 0; s < seeds; s++) {
+                Game g = new Game();
+                Game.genRandomWorld(g, s, generator);
+                StructureIndex index = g.structures();
+                structures += index.size();
+                errors += checkCoverage(g.world(), index);
+
+                Random rand = new Random(s);
+                int[] xs = new int[QUERIES];
+                int[] ys = new int[QUERIES];
+                for (int q = 0; q < QUERIES; q++) {
+                    xs[q] = rand.nextInt(Game.WIDTH);
+                    ys[q] = rand.nextInt(Game.HEIGHT);
+                }
+                int[] out = new int[index.size()];
+                int acc = 0;
+                long t0 = System.nanoTime();
+                for (int q = 0; q < QUERIES; q++) {
+                    acc += index.at(xs[q], ys[q]) + index.nearest(xs[q], ys[q])
+                            + index.within(xs[q] - 4, ys[q] - 4, xs[q] + 4, ys[q] + 4, out);
+                }
+                long t1 = System.nanoTime();
+                for (int q = 0; q < QUERIES; q++) {
+                    acc += scanAt(index, xs[q], ys[q]) + scanNearest(index, xs[q], ys[q])
+                            + scanWithin(index, xs[q] - 4, ys[q] - 4, xs[q] + 4, ys[q] + 4);
+                }
+                long t2 = System.nanoTime();
+                sink = acc;
+                indexNanos += t1 - t0;
+                scanNanos += t2 - t1;
+
+                for (int q = 0; q < QUERIES; q++) {
+                    int x = xs[q];
+                    int y = ys[q];
+                    if (index.at(x, y) != scanAt(index, x, y)
+                            || index.nearest(x, y) != scanNearest(index, x, y)
+                            || index.within(x - 4, y - 4, x + 4, y + 4, out)
+                               != scanWithin(index, x - 4, y - 4, x + 4, y + 4)) {
+                        errors++;
+                    }
+                }
+            }
+            double queries = (double) seeds * QUERIES;
+            System.out.printf("%s,%.1f,%.1f,%.1f,%d%n", name, (double) structures / seeds,
+                              indexNanos / queries, scanNanos / queries, errors);
+            ok &= errors == 0;
+        }
+        return ok;
+    }
+
+    /* Counts the walkable tiles that are in no structure. */
+    private static int checkCoverage(Tile[][] world, StructureIndex index) {
+        int missing = 0;
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[0].length; y++) {
+                if (world[x][y] != TileSet.WALL && world[x][y] != TileSet.NOTHING
+                        && index.at(x, y) < 0) {
+                    missing++;
+                }
+            }
+        }
+        return missing;
+    }
+
+    private static int scanAt(StructureIndex index, int x, int y) {
+        int best = -1;
+        for (int id = 0; id < index.size(); id++) {
+            int[] b = index.bounds(id);
+            if (b[0] <= x && x < b[2] && b[1] <= y && y < b[3]
+                    && (best < 0 || index.kind(id) < index.kind(best))) {
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    private static int scanNearest(StructureIndex index, int x, int y) {
+        int best = -1;
+        long bestDist = Long.MAX_VALUE;
+        for (int id = 0; id < index.size(); id++) {
+            int[] b = index.bounds(id);
+            long dx = Math.max(0, Math.max(b[0] - x, x - (b[2] - 1)));
+            long dy = Math.max(0, Math.max(b[1] - y, y - (b[3] - 1)));
+            if (dx * dx + dy * dy < bestDist) {
+                bestDist = dx * dx + dy * dy;
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    private static int scanWithin(StructureIndex index, int ax, int ay, int bx, int by) {
+        int n = 0;
+        for (int id = 0; id < index.size(); id++) {
+            int[] b = index.bounds(id);
+            if (b[0] < bx && ax < b[2] && b[1] < by && ay < b[3]) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
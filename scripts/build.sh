@@ -0,0 +1,30 @@
+#!/bin/sh
+# Compiles the game into $OUT/classes and the checks and benchmarks of
+# bench/ into $OUT/bench. The harnesses are not part of the game; run
+# them with both directories on the class path:
+#
+#   java -cp $OUT/classes:$OUT/bench:$CP Core.Bench <harness> [args...]
+#
+# If the JDK has the jdk.incubator.vector module, the optional vector
+# grid kernels of vector/ are compiled into $OUT/vector. The game uses
+# them when that directory is on the class path and the JVM is started
+# with --add-modules jdk.incubator.vector.
+#
+# Usage: CP=tileengine.jar scripts/build.sh
+#
+# $CP must provide the TileEngine and StdDraw classes.
+
+set -e
+cd "$(dirname "$0")/.."
+CP=${CP:-tileengine.jar}
+OUT=${OUT:-out}
+
+rm -rf "$OUT/classes" "$OUT/bench" "$OUT/vector"
+mkdir -p "$OUT/classes" "$OUT/bench"
+javac -cp "$CP" -d "$OUT/classes" Core/*.java
+if java --list-modules 2>/dev/null | grep -q '^jdk.incubator.vector'; then
+    mkdir -p "$OUT/vector"
+    javac --add-modules jdk.incubator.vector -cp "$OUT/classes:$CP" -d "$OUT/vector" \
+        vector/Core/*.java
+fi
+javac -cp "$OUT/classes:$CP" -d "$OUT/bench" bench/Core/*.java
@@ -0,0 +1,21 @@
+#!/bin/sh
+# Runs the game in string mode from a class-data sharing (AppCDS) archive.
+#
+# The first run records the classes the headless path loads into
+# $ARCHIVE; later runs map them from the archive instead of parsing and
+# verifying them. String mode is short-lived, so the JIT is limited to C1
+# and the serial collector is used, which both start faster.
+#
+# Usage: CP=abyss.jar:tileengine.jar scripts/headless.sh n123sswwdd
+#
+# CDS only archives classes loaded from jar files, so $CP must list jars
+# rather than class directories. Requires JDK 13 or newer.
+
+CP=${CP:-abyss.jar}
+ARCHIVE=${ARCHIVE:-headless.jsa}
+JVM_OPTS="-Djava.awt.headless=true -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -XX:-UsePerfData"
+
+if [ ! -f "$ARCHIVE" ]; then
+    java $JVM_OPTS -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$CP" Core.Main n123sswwdd > /dev/null
+fi
+exec java $JVM_OPTS -XX:SharedArchiveFile="$ARCHIVE" -cp "$CP" Core.Main "$@"
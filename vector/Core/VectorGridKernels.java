@@ -0,0 +1,104 @@
+package Core;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Grid kernels on the preferred byte species of the CPU, 16 to 64 cells
+ * per instruction. The lane count always divides 64 and loops start at
+ * cell 0, so the lane mask of one vector falls inside a single bitset
+ * word. Remaining cells are handled by the scalar loops.
+ * <p>
+ * Only loaded through {@link GridKernels#vector()}. It lives in its own
+ * source directory, outside the game's build, because compiling it needs
+ * {@code --add-modules jdk.incubator.vector}; scripts/build.sh compiles
+ * it into a separate class directory when the JDK has the module.
+ */
+final class VectorGridKernels extends GridKernels {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    /* One set bit per lane, for vectors whose lanes all match. */
+    private static final long LANE_BITS = SPECIES.length() == 64 ? -1L
+            : (1L << SPECIES.length()) - 1;
+
+    @Override
+    public String name() {
+        return "vector" + SPECIES.length();
+    }
+
+    @Override
+    public void fill(byte[] grid, byte id) {
+        ByteVector v = ByteVector.broadcast(SPECIES, id);
+        int bound = SPECIES.loopBound(grid.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            v.intoArray(grid, i);
+        }
+        ScalarGridKernels.fill(grid, id, i);
+    }
+
+    @Override
+    public void replace(byte[] grid, byte from, byte to) {
+        int bound = SPECIES.loopBound(grid.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, grid, i);
+            VectorMask<Byte> m = v.eq(from);
+            if (m.anyTrue()) {
+                v.blend(to, m).intoArray(grid, i);
+            }
+        }
+        ScalarGridKernels.replace(grid, from, to, i);
+    }
+
+    @Override
+    public int count(byte[] grid, byte id) {
+        int bound = SPECIES.loopBound(grid.length);
+        int n = 0;
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            n += ByteVector.fromArray(SPECIES, grid, i).eq(id).trueCount();
+        }
+        return n + ScalarGridKernels.count(grid, id, i);
+    }
+
+    @Override
+    public void mask(byte[] grid, byte id, long[] bits) {
+        int bound = SPECIES.loopBound(grid.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Byte> m = ByteVector.fromArray(SPECIES, grid, i).eq(id);
+            if (m.allTrue()) {
+                bits[i >>> 6] |= LANE_BITS << (i & 63);
+            } else if (m.anyTrue()) {
+                for (int j = i; j < i + SPECIES.length(); j++) {
+                    if (grid[j] == id) {
+                        bits[j >>> 6] |= 1L << j;
+                    }
+                }
+            }
+        }
+        ScalarGridKernels.mask(grid, id, bits, i);
+    }
+
+    @Override
+    public int diff(byte[] a, byte[] b, int[] cells) {
+        checkDiff(a, b, cells);
+        int bound = SPECIES.loopBound(a.length);
+        int n = 0;
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Byte> m = ByteVector.fromArray(SPECIES, a, i)
+                    .compare(VectorOperators.NE, ByteVector.fromArray(SPECIES, b, i));
+            if (m.anyTrue()) {
+                for (int j = i; j < i + SPECIES.length(); j++) {
+                    if (a[j] != b[j]) {
+                        cells[n++] = j;
+                    }
+                }
+            }
+        }
+        return ScalarGridKernels.diff(a, b, cells, i, n);
+    }
+}